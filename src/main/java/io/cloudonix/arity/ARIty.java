@@ -1,16 +1,25 @@
 package io.cloudonix.arity;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.net.URISyntaxException;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -20,22 +29,23 @@ import org.slf4j.LoggerFactory;
 
 import ch.loway.oss.ari4java.ARI;
 import ch.loway.oss.ari4java.AriVersion;
-import ch.loway.oss.ari4java.generated.models.BridgeCreated;
 import ch.loway.oss.ari4java.generated.models.BridgeDestroyed;
 import ch.loway.oss.ari4java.generated.models.Channel;
-import ch.loway.oss.ari4java.generated.models.DeviceStateChanged;
+import ch.loway.oss.ari4java.generated.models.ChannelDestroyed;
 import ch.loway.oss.ari4java.generated.models.Message;
-import ch.loway.oss.ari4java.generated.models.PlaybackFinished;
-import ch.loway.oss.ari4java.generated.models.PlaybackStarted;
-import ch.loway.oss.ari4java.generated.models.RecordingFinished;
-import ch.loway.oss.ari4java.generated.models.RecordingStarted;
 import ch.loway.oss.ari4java.generated.models.StasisEnd;
 import ch.loway.oss.ari4java.generated.models.StasisStart;
 import ch.loway.oss.ari4java.tools.ARIException;
 import ch.loway.oss.ari4java.tools.AriCallback;
 import ch.loway.oss.ari4java.tools.RestException;
 import io.cloudonix.arity.errors.ConnectionFailedException;
+import io.cloudonix.arity.errors.EventTimeoutException;
+import io.cloudonix.arity.helpers.ConcurrencyLimiter;
+import io.cloudonix.arity.helpers.KeyedSerialExecutor;
 import io.cloudonix.arity.helpers.Lazy;
+import io.cloudonix.arity.helpers.SharedTimer;
+import io.cloudonix.arity.helpers.TokenBucket;
+import io.cloudonix.arity.models.AsteriskChannel.HangupReasons;
 
 /**
  * The class represents the creation of ARI and websocket service that handles
@@ -46,8 +56,8 @@ import io.cloudonix.arity.helpers.Lazy;
  */
 public class ARIty implements AriCallback<Message> {
 	private final static Logger logger = LoggerFactory.getLogger(ARIty.class);
-	private Queue<EventHandler<?>> eventHandlers = new ConcurrentLinkedQueue<>();
-	private Queue<EventHandler<?>> rawEventHandlers = new ConcurrentLinkedQueue<>();
+	private EventHandlerRegistry eventHandlers = new EventHandlerRegistry();
+	private EventBus generalEventHandlers = new EventBus();
 	private ARI ari;
 	private String appName;
 	private Supplier<CallController> callSupplier = this::hangupDefault;
@@ -55,8 +65,103 @@ public class ARIty implements AriCallback<Message> {
 	private Consumer<Exception> ce;
 	private Lazy<Channels> channels = new Lazy<>(() -> new Channels(this));
 	private Lazy<Bridges> bridges = new Lazy<>(() -> new Bridges(this));
-	private ExecutorService threadpool = Executors.newCachedThreadPool();
+	private volatile ExecutorService threadpool = Executors.newCachedThreadPool();
+	private volatile Executor completionExecutor = null;
+	private volatile RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+	private ConcurrentHashMap<Class<? extends Operation>, RetryPolicy> operationRetryPolicies = new ConcurrentHashMap<>();
+	private volatile TokenBucket retryBudget = null;
+	private volatile CircuitBreaker circuitBreaker = null;
+	private volatile ConcurrencyLimiter requestLimiter = null;
+	private volatile ARItyMetrics metrics = ARItyMetrics.NOOP;
+	private volatile long eventWaitTimeout = 0;
+	private volatile EventIngestion ingestion = null;
+	private volatile RetryPolicy reconnectPolicy = RetryPolicy.backoff().setBaseDelay(500).setMaxDelay(30000)
+			.setMaxRetries(Integer.MAX_VALUE);
+	private volatile boolean websocketOpened = false;
+	private volatile boolean disconnected = false;
+	private final AtomicBoolean reconnecting = new AtomicBoolean();
+	private final AtomicInteger reconnectAttempts = new AtomicInteger();
+	private volatile long reconnectDelay = 0;
+	private Set<CallState> liveCallStates = ConcurrentHashMap.newKeySet();
+	private volatile ChannelRegistry channelRegistry = null;
+	private ConcurrentHashMap<String, BridgeMembership> bridgeMemberships = new ConcurrentHashMap<>();
+	private volatile Supplier<VariableCache> variableCacheFactory = VariableCache::unbounded;
+	private volatile List<String> prefetchVariables = Collections.emptyList();
 	boolean autoBindBridges = false;
+	private volatile DispatchMode dispatchMode = DispatchMode.PARALLEL;
+	private KeyedSerialExecutor channelExecutor = new KeyedSerialExecutor(task -> threadpool.execute(task));
+	private List<StateObserver> stateObservers = new CopyOnWriteArrayList<>();
+
+	/**
+	 * How ARIty runs event handlers
+	 */
+	public enum DispatchMode {
+		/**
+		 * Each event handler is run as a separate task on the executor service. Events of the same channel may be
+		 * handled out of order and in parallel. This is the default.
+		 */
+		PARALLEL,
+		/**
+		 * All the handlers of an event are run by a single task, and the events of each channel (or bridge, for events
+		 * that have no channel) are handled one at a time, in the order they were received from Asterisk.
+		 * Handlers should not block, as that delays all the following events of the same channel.
+		 */
+		SERIAL_PER_CHANNEL
+	}
+
+	/**
+	 * What the event ingestion stage does when events arrive faster than they can be dispatched
+	 * (see {@link ARIty#setIngestionBuffer(int, OverloadPolicy)})
+	 */
+	public enum OverloadPolicy {
+		/**
+		 * When the ingestion buffer is full, the websocket reader waits for space, which pushes back on Asterisk.
+		 * This is the default.
+		 */
+		BLOCK,
+		/**
+		 * When the ingestion buffer is three quarters full, new incoming calls are rejected by hanging up with
+		 * congestion, leaving the rest of the buffer for the events of existing calls. Other events wait for space.
+		 */
+		SHED_CALLS,
+		/**
+		 * When the ingestion buffer is full, low priority events - variable updates, talk detection, dialplan and
+		 * caller ID updates and device state changes - are dropped. Other events wait for space.
+		 */
+		DROP_LOW_PRIORITY
+	}
+
+	/**
+	 * Observer of the events ARIty receives and of its resynchronizations, for tracking Asterisk state outside of
+	 * ARIty - such as the channel and bridge owners tracked by {@link ARItyCluster}
+	 */
+	interface StateObserver {
+		/**
+		 * Observe an event before it is dispatched to event handlers. Events of the same channel (or bridge, for
+		 * events that have no channel) are observed one at a time in the order they were received, on the thread
+		 * that dispatches them, so the observer must be fast and must not block.
+		 * @param event event received from Asterisk
+		 */
+		void event(Message event);
+
+		/**
+		 * Called when a resynchronization starts, before the active channels and bridges are listed
+		 */
+		void resynchronizing();
+
+		/**
+		 * Called with the channels and bridges that were active in Asterisk when they were listed by a
+		 * resynchronization
+		 * @param channels active channels
+		 * @param bridges active bridges
+		 */
+		void resynchronized(List<Channel> channels, List<ch.loway.oss.ari4java.generated.models.Bridge> bridges);
+
+		/**
+		 * Called instead of {@link #resynchronized(List, List)} if the active channels or bridges could not be listed
+		 */
+		void resynchronizeFailed();
+	}
 
 	/**
 	 * Create and connect ARIty to Asterisk
@@ -142,6 +247,7 @@ public class ARIty implements AriCallback<Message> {
 			logger.info("Ari version: " + ari.getVersion());
 			if (openWebSocket) {
 				ari.events().eventWebsocket(appName).setSubscribeAll(true).execute(this);
+				websocketOpened = true;
 				logger.info("Websocket is open");
 			}
 		} catch (ARIException e) {
@@ -153,14 +259,46 @@ public class ARIty implements AriCallback<Message> {
 	/**
 	 * Use the specified executor service to provide threads where new calls will be started.
 	 * If this method is not called, ARIty uses a cache thread pool from {@link Executors}.
+	 *
+	 * The caller owns the provided executor service and is responsible for shutting it down. The executor service
+	 * that is replaced is not shut down, as tasks and promise stages may already be queued on it: the idle threads of
+	 * the default cached thread pool expire on their own.
 	 * @param service an ExecutorService to manage call threads
 	 * @return itself for fluent calls
 	 */
 	public ARIty setExecutorService(ExecutorService service) {
-		threadpool = service;
+		threadpool = Objects.requireNonNull(service);
 		return this;
 	}
 	
+	/**
+	 * Run new calls and event handlers on virtual threads, using a new thread for each task, so that call controllers
+	 * can block while waiting for operations without exhausting a thread pool (see {@link BlockingCallController}).
+	 *
+	 * Virtual threads require Java 21 or later.
+	 * @return itself for fluent calls
+	 * @throws UnsupportedOperationException if the current Java runtime does not support virtual threads
+	 */
+	public ARIty useVirtualThreads() {
+		try {
+			return setExecutorService((ExecutorService) MethodHandles.publicLookup().findStatic(Executors.class,
+					"newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class)).invoke());
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new UnsupportedOperationException("Virtual threads are not supported by Java " +
+					System.getProperty("java.version") + ", Java 21 or later is required", e);
+		} catch (Throwable t) {
+			throw new UnsupportedOperationException("Failed to create a virtual thread executor", t);
+		}
+	}
+
+	/**
+	 * Retrieve the executor service where ARIty starts new calls and runs event handlers
+	 * @return the executor service set by {@link #setExecutorService(ExecutorService)}, or the default cached thread pool
+	 */
+	public ExecutorService getExecutorService() {
+		return threadpool;
+	}
+
 	/**
 	 * Sets the default behavior for call controllers' bridge binding (see @link {@link CallController#bindToBridge()}
 	 * @param shouldAutoBind set to <code>true</code> to have all call controller automatically bind to a bridge on init
@@ -172,6 +310,319 @@ public class ARIty implements AriCallback<Message> {
 		return this;
 	}
 	
+	/**
+	 * Set how ARIty runs event handlers. The default is {@link DispatchMode#PARALLEL}.
+	 * @param mode dispatch mode to use for events received from now on
+	 * @return itself for fluent calls
+	 */
+	public ARIty setDispatchMode(DispatchMode mode) {
+		this.dispatchMode = Objects.requireNonNull(mode);
+		return this;
+	}
+
+	/**
+	 * Use the specified executor to complete the promises of ARI operations.
+	 * If this method is not called, ARI operation results are completed in the executor service set by
+	 * {@link #setExecutorService(ExecutorService)}.
+	 * @param executor executor to complete ARI operations in, or <code>null</code> to use the ARIty executor service
+	 * @return itself for fluent calls
+	 */
+	public ARIty setCompletionExecutor(Executor executor) {
+		completionExecutor = executor;
+		return this;
+	}
+
+	/**
+	 * Complete the promises of ARI operations directly on the thread that received the ARI response, instead of
+	 * dispatching them to an executor. This saves a thread hop for every operation, but should only be used if
+	 * all the code that handles operation results is non-blocking, as it would otherwise block ARI's I/O thread.
+	 * @param direct whether to complete ARI operations directly
+	 * @return itself for fluent calls
+	 */
+	public ARIty setDirectCompletion(boolean direct) {
+		return setCompletionExecutor(direct ? Runnable::run : null);
+	}
+
+	/**
+	 * Retrieve the executor where ARI operation promises should be completed
+	 * @return the configured completion executor, or the ARIty executor service
+	 */
+	Executor getCompletionExecutor() {
+		Executor executor = completionExecutor;
+		return Objects.nonNull(executor) ? executor : threadpool;
+	}
+
+	/**
+	 * Set the retry policy for all ARI operations that don't have a specific policy set for their type.
+	 * The default is {@link RetryPolicy#DEFAULT}.
+	 * @param policy retry policy to use
+	 * @return itself for fluent calls
+	 */
+	public ARIty setRetryPolicy(RetryPolicy policy) {
+		retryPolicy = Objects.requireNonNull(policy);
+		return this;
+	}
+
+	/**
+	 * Set the retry policy for ARI operations executed by a specific operation type, for example {@link Hangup}
+	 * @param type operation type to set the policy for
+	 * @param policy retry policy to use, or <code>null</code> to use the default policy for this type
+	 * @return itself for fluent calls
+	 */
+	public ARIty setRetryPolicy(Class<? extends Operation> type, RetryPolicy policy) {
+		if (Objects.isNull(policy))
+			operationRetryPolicies.remove(type);
+		else
+			operationRetryPolicies.put(type, policy);
+		return this;
+	}
+
+	/**
+	 * Limit how many times per second ARI operations may be retried, across all the operations of this instance.
+	 * When the budget is exhausted, failed operations fail immediately instead of retrying, so that an overloaded
+	 * Asterisk server is not flooded with retries. By default retries are not limited.
+	 * @param retriesPerSecond maximum number of retries per second, or 0 to not limit retries
+	 * @return itself for fluent calls
+	 */
+	public ARIty setRetryBudget(int retriesPerSecond) {
+		retryBudget = retriesPerSecond > 0 ? new TokenBucket(retriesPerSecond) : null;
+		return this;
+	}
+
+	/**
+	 * Retrieve the retry policy for ARI operations
+	 * @param type type of operation, or <code>null</code> for operations not executed by an {@link Operation}
+	 * @return the retry policy set for the operation type, or the default retry policy
+	 */
+	RetryPolicy getRetryPolicy(Class<?> type) {
+		RetryPolicy policy = Objects.nonNull(type) ? operationRetryPolicies.get(type) : null;
+		return Objects.nonNull(policy) ? policy : retryPolicy;
+	}
+
+	/**
+	 * Take a retry from the retry budget
+	 * @return whether a retry may be made
+	 */
+	boolean tryAcquireRetry() {
+		TokenBucket budget = retryBudget;
+		return Objects.isNull(budget) || budget.tryAcquire();
+	}
+
+	/**
+	 * Protect Asterisk from ARI requests when it is failing or overloaded. While the breaker is open, ARI operations
+	 * fail immediately with a {@link io.cloudonix.arity.errors.CircuitOpenException} and new calls are rejected by
+	 * hanging up with congestion. By default no circuit breaker is used.
+	 * @param breaker circuit breaker to use, or <code>null</code> to disable the circuit breaker
+	 * @return itself for fluent calls
+	 */
+	public ARIty setCircuitBreaker(CircuitBreaker breaker) {
+		circuitBreaker = breaker;
+		return this;
+	}
+
+	/**
+	 * Retrieve the circuit breaker protecting ARI requests
+	 * @return the circuit breaker set by {@link #setCircuitBreaker(CircuitBreaker)}, or <code>null</code> if none was set
+	 */
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	/**
+	 * Limit the number of ARI requests sent to Asterisk at the same time. Requests made while the limit is reached
+	 * wait in a bounded queue, and when the queue is full new ARI operations fail immediately with a
+	 * {@link java.util.concurrent.RejectedExecutionException}. By default requests are not limited.
+	 * @param maxInFlight maximum number of requests sent at the same time, or 0 to not limit requests
+	 * @param maxQueued maximum number of requests waiting to be sent
+	 * @return itself for fluent calls
+	 */
+	public ARIty setMaxConcurrentRequests(int maxInFlight, int maxQueued) {
+		requestLimiter = maxInFlight > 0 ? new ConcurrencyLimiter(maxInFlight, maxQueued) : null;
+		return this;
+	}
+
+	/**
+	 * Retrieve the limiter of concurrent ARI requests
+	 * @return the request limiter, or <code>null</code> if requests are not limited
+	 */
+	ConcurrencyLimiter getRequestLimiter() {
+		return requestLimiter;
+	}
+
+	/**
+	 * Report ARIty's event dispatch and ARI operation performance to a metrics system. The metrics implementation's
+	 * gauges are registered when this method is called. By default no metrics are reported.
+	 * @param metrics metrics implementation to use
+	 * @return itself for fluent calls
+	 */
+	public ARIty setMetrics(ARItyMetrics metrics) {
+		this.metrics = Objects.requireNonNull(metrics);
+		metrics.registerGauge("arity.handlers", () -> eventHandlers.size() + generalEventHandlers.size());
+		metrics.registerGauge("arity.dispatch.serial-queues", channelExecutor::size);
+		metrics.registerGauge("arity.requests.in-flight", () -> {
+			ConcurrencyLimiter limiter = requestLimiter;
+			return Objects.nonNull(limiter) ? limiter.getRunning() : 0;
+		});
+		metrics.registerGauge("arity.requests.queued", () -> {
+			ConcurrencyLimiter limiter = requestLimiter;
+			return Objects.nonNull(limiter) ? limiter.getQueued() : 0;
+		});
+		metrics.registerGauge("arity.ingestion.depth", this::getIngestionDepth);
+		metrics.registerGauge("arity.ingestion.dropped", this::getDroppedEvents);
+		metrics.registerGauge("arity.ingestion.shed-calls", this::getShedCalls);
+		metrics.registerGauge("arity.channels.cached", () -> {
+			ChannelRegistry registry = channelRegistry;
+			return Objects.nonNull(registry) ? registry.size() : 0;
+		});
+		metrics.registerGauge("arity.executor.queued", () -> threadpool instanceof ThreadPoolExecutor ?
+				((ThreadPoolExecutor) threadpool).getQueue().size() : 0);
+		return this;
+	}
+
+	/**
+	 * Retrieve the metrics implementation ARIty reports to
+	 * @return the metrics implementation set by {@link #setMetrics(ARItyMetrics)}, or {@link ARItyMetrics#NOOP}
+	 */
+	public ARItyMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Set how long ARIty operations wait for an expected event, such as the end of a playback or a recording, before
+	 * failing with an {@link io.cloudonix.arity.errors.EventTimeoutException}. This bounds the memory held by waits for
+	 * events that Asterisk never sends. By default operations wait for events forever.
+	 *
+	 * The timeout also applies to waits for the end of playbacks and recordings, so it must be longer than the longest
+	 * media the application plays or records (including music on hold and conference recordings).
+	 * @param millis timeout in milliseconds, or 0 to wait for events forever
+	 * @return itself for fluent calls
+	 */
+	public ARIty setEventWaitTimeout(long millis) {
+		eventWaitTimeout = millis;
+		return this;
+	}
+
+	/**
+	 * Retrieve how long ARIty operations wait for an expected event
+	 * @return timeout in milliseconds, or 0 if operations wait for events forever
+	 */
+	public long getEventWaitTimeout() {
+		return eventWaitTimeout;
+	}
+
+	/**
+	 * Keep snapshots of the channels in the application in memory, updated from the event stream, so that channel
+	 * lookups by {@link #getChannel(String)}, {@link #getCallState(String)} and {@link CallController#isCallActive()}
+	 * are answered without a request to Asterisk. Lookups of channels that are not in the application still go to
+	 * Asterisk. The cache is disabled by default.
+	 * @param enabled whether to cache channel snapshots
+	 * @return itself for fluent calls
+	 */
+	public ARIty setChannelCache(boolean enabled) {
+		if (enabled != Objects.nonNull(channelRegistry))
+			channelRegistry = enabled ? new ChannelRegistry() : null;
+		return this;
+	}
+
+	/**
+	 * Set the variable cache used by new call states. The default cache stores all the variables that were read, set
+	 * or reported by Asterisk for the lifetime of the call.
+	 * @param factory creates a new cache for each call state, for example <code>() -&gt; VariableCache.lru(100)</code>
+	 * @return itself for fluent calls
+	 */
+	public ARIty setVariableCache(Supplier<VariableCache> factory) {
+		variableCacheFactory = Objects.requireNonNull(factory);
+		return this;
+	}
+
+	/**
+	 * Set channel variables to read for each new incoming call before its call controller starts running, so the
+	 * controller can get them from the variable cache without waiting. When using an allow-list variable cache, these
+	 * variables should also be allowed.
+	 * @param names names of variables to read
+	 * @return itself for fluent calls
+	 */
+	public ARIty setPrefetchVariables(String... names) {
+		prefetchVariables = Collections.unmodifiableList(Arrays.asList(names.clone()));
+		return this;
+	}
+
+	/**
+	 * Create a variable cache for a new call state
+	 * @return a new variable cache
+	 */
+	VariableCache newVariableCache() {
+		return variableCacheFactory.get();
+	}
+
+	/**
+	 * Set the policy for reconnecting the event websocket after it fails. After the websocket is reconnected, the
+	 * call states of live channels are resynchronized with Asterisk (see {@link #resynchronize()}). The default is
+	 * to retry forever with exponential backoff, between half a second and 30 seconds apart.
+	 * @param policy reconnection policy, whose {@link RetryPolicy#isRetryable(Throwable)} check is ignored, or
+	 *   <code>null</code> to not reconnect
+	 * @return itself for fluent calls
+	 */
+	public ARIty setReconnectPolicy(RetryPolicy policy) {
+		reconnectPolicy = policy;
+		return this;
+	}
+
+	/**
+	 * Receive events through a bounded ingestion buffer that is drained by a dedicated thread, dispatching events in
+	 * batches per channel and coalescing redundant channel variable updates (see {@link EventIngestion}). This reduces
+	 * the dispatch overhead during event storms. When the buffer is full, the websocket reader waits for space.
+	 * By default events are dispatched directly from the websocket reader.
+	 * @param capacity number of events the buffer can hold, or 0 to dispatch events directly
+	 * @return itself for fluent calls
+	 */
+	public ARIty setIngestionBuffer(int capacity) {
+		return setIngestionBuffer(capacity, OverloadPolicy.BLOCK);
+	}
+
+	/**
+	 * Receive events through a bounded ingestion buffer, with the specified policy for handling overload
+	 * (see {@link #setIngestionBuffer(int)})
+	 * @param capacity number of events the buffer can hold, or 0 to dispatch events directly
+	 * @param policy what to do when events arrive faster than they can be dispatched
+	 * @return itself for fluent calls
+	 */
+	public synchronized ARIty setIngestionBuffer(int capacity, OverloadPolicy policy) {
+		if (Objects.nonNull(ingestion))
+			ingestion.shutdown();
+		ingestion = capacity > 0 ? new EventIngestion(this, capacity, Objects.requireNonNull(policy)) : null;
+		return this;
+	}
+
+	/**
+	 * Check how many events are waiting in the ingestion buffer
+	 * @return number of events waiting to be dispatched, or 0 if the ingestion buffer is not used
+	 */
+	public int getIngestionDepth() {
+		EventIngestion ingestion = this.ingestion;
+		return Objects.nonNull(ingestion) ? ingestion.getDepth() : 0;
+	}
+
+	/**
+	 * Check how many low priority events were dropped by the {@link OverloadPolicy#DROP_LOW_PRIORITY} policy
+	 * since the ingestion buffer was set up
+	 * @return number of dropped events
+	 */
+	public long getDroppedEvents() {
+		EventIngestion ingestion = this.ingestion;
+		return Objects.nonNull(ingestion) ? ingestion.getDropped() : 0;
+	}
+
+	/**
+	 * Check how many incoming calls were rejected by the {@link OverloadPolicy#SHED_CALLS} policy since the
+	 * ingestion buffer was set up
+	 * @return number of rejected calls
+	 */
+	public long getShedCalls() {
+		EventIngestion ingestion = this.ingestion;
+		return Objects.nonNull(ingestion) ? ingestion.getShedCalls() : 0;
+	}
+
 	/**
 	 * Execute a task (such as completing a CompletableFuture) in the ARIty completion executor service 
 	 * @param task task to dispatch using the executor
@@ -279,38 +730,179 @@ public class ARIty implements AriCallback<Message> {
 	 * @return A promise for a new call state instance for that channel
 	 */
 	public CompletableFuture<CallState> getCallState(String channelId) {
-		return Operation.<Channel>retry(h -> ari.channels().get(channelId).execute(h))
-				.thenApply(chan -> new CallState(chan, this));
+		return getChannel(channelId).thenApply(chan -> {
+			ChannelRegistry registry = channelRegistry;
+			CallState existing = Objects.nonNull(registry) ? registry.getCallState(channelId) : null;
+			CallState callState = new CallState(chan, this);
+			if (Objects.nonNull(existing))
+				existing.allVariables().forEach(e -> callState.cacheVariable(e.getKey(), e.getValue()));
+			return callState;
+		});
+	}
+
+	/**
+	 * Retrieve the current snapshot of a channel, from the channel cache if it is enabled and has the channel
+	 * (see {@link #setChannelCache(boolean)}), or from Asterisk otherwise
+	 * @param channelId ID of the channel
+	 * @return a promise for the channel snapshot, that will fail if the channel does not exist
+	 */
+	public CompletableFuture<Channel> getChannel(String channelId) {
+		Channel cached = getCachedChannel(channelId);
+		if (Objects.nonNull(cached))
+			return CompletableFuture.completedFuture(cached);
+		return Operation.<Channel>retry(this, "ARIty.getChannel", h -> ari.channels().get(channelId).execute(h));
+	}
+
+	/**
+	 * Retrieve a channel snapshot from the channel cache
+	 * @param channelId ID of the channel
+	 * @return the latest snapshot of the channel, or <code>null</code> if the cache is disabled or the channel is
+	 *   not in the application
+	 */
+	Channel getCachedChannel(String channelId) {
+		ChannelRegistry registry = channelRegistry;
+		return Objects.nonNull(registry) ? registry.get(channelId) : null;
 	}
 
 	@Override
 	public void onSuccess(Message event) {
+		long received = System.nanoTime();
+		if (reconnectAttempts.get() != 0) { // the websocket is delivering events again
+			reconnectAttempts.set(0);
+			reconnectDelay = 0;
+		}
+		metrics.eventReceived(event.getType());
+		EventIngestion ingestion = this.ingestion;
+		if (Objects.nonNull(ingestion)) {
+			try {
+				ingestion.offer(event, received);
+			} catch (InterruptedException e) {
+				logger.warn("Interrupted while waiting to ingest {}", event.getType());
+				Thread.currentThread().interrupt();
+			}
+			return;
+		}
+		String channelId = EventRouting.getChannelId(event);
+		String objectKey = EventRouting.getObjectKey(event);
+		String serialKey = dispatchMode == DispatchMode.SERIAL_PER_CHANNEL ? (channelId != null ? channelId : objectKey) : null;
+		if (serialKey != null)
+			channelExecutor.execute(serialKey, () -> dispatchEvent(event, channelId, objectKey, true, received));
+		else
+			dispatchEvent(event, channelId, objectKey, false, received);
+	}
+
+	/**
+	 * Deliver a batch of events drained from the ingestion buffer
+	 * @param key channel ID or object routing key that all the events share, or <code>null</code> for events that
+	 *   have neither
+	 * @param events events to deliver, in the order they were received
+	 */
+	void dispatchBatch(String key, List<EventIngestion.Ingested> events) {
+		if (key != null && dispatchMode == DispatchMode.SERIAL_PER_CHANNEL) {
+			channelExecutor.execute(key, () -> {
+				for (EventIngestion.Ingested ev : events)
+					dispatchEvent(ev.event, ev.channelId, ev.objectKey, true, ev.received);
+			});
+			return;
+		}
+		for (EventIngestion.Ingested ev : events)
+			dispatchEvent(ev.event, ev.channelId, ev.objectKey, false, ev.received);
+	}
+
+	/**
+	 * Check whether all the handlers that would receive a message on the specified channel only update cached state
+	 * @param channelId channel the message is sent on
+	 * @param messageClass concrete message class
+	 * @return whether the message may be coalesced with a later message that overrides it
+	 */
+	boolean isCoalescable(String channelId, Class<?> messageClass) {
+		return !generalEventHandlers.hasSubscribers(messageClass) && eventHandlers.onlyCoalescable(channelId, messageClass);
+	}
+
+	/**
+	 * Deliver an event to all the handlers registered for it
+	 * @param event event to deliver
+	 * @param channelId channel ID of the event, if it has one
+	 * @param objectKey routing key of the bridge, playback or recording the event refers to, if any
+	 * @param inline whether to run the handlers on the calling thread, or dispatch each one to the executor service
+	 * @param received when the event was received, as reported by {@link System#nanoTime()}
+	 */
+	private void dispatchEvent(Message event, String channelId, String objectKey, boolean inline, long received) {
+		ChannelRegistry registry = channelRegistry;
+		if (Objects.nonNull(registry) && channelId != null)
+			registry.update(event);
+		BridgeMembership membership = objectKey != null ? bridgeMemberships.get(objectKey) : null;
+		if (Objects.nonNull(membership)) // update before dispatching, so channel and bridge handlers see the current members
+			membership.update(event);
+		for (StateObserver observer : stateObservers)
+			observer.event(event);
 		if (event instanceof StasisStart) {
-			threadpool.submit(() -> handleStasisStart(event));
+			if (inline)
+				handleStasisStart(event, received);
+			else
+				threadpool.submit(() -> handleStasisStart(event, received));
 			return;
 		}
 
-		String channelId = getEventChannelId(event);
-		logger.debug("Received event " + event.getClass().getSimpleName() + " on channel " + channelId);
+		logger.debug("Received event {} on channel {}", event.getType(), channelId);
 		if (channelId != null)
-			handleChannelEvents(event, channelId);
+			handleChannelEvents(event, channelId, inline, received);
+		if (objectKey != null)
+			handleObjectEvents(event, objectKey, inline, received);
 		// dispatch global event handlers
-		for (Iterator<EventHandler<?>> itr = rawEventHandlers.iterator(); itr.hasNext(); )
-			itr.next().accept(event);
+		generalEventHandlers.publish(event, inline, received);
 	}
 
-	private void handleChannelEvents(Message event, String channelId) {
-		for (Iterator<EventHandler<?>> itr = eventHandlers.iterator(); itr.hasNext(); ) {
-			EventHandler<?> currEntry = itr.next();
-			if (!Objects.equals(currEntry.getChannelId(), channelId))
-				continue;
-			currEntry.accept(event);
-		}
+	private void handleChannelEvents(Message event, String channelId, boolean inline, long received) {
+		eventHandlers.dispatch(event, channelId, inline, received);
 		if (event instanceof StasisEnd) // clear event handlers for this channel
-			eventHandlers.removeIf(e -> e.getChannelId().equals(((StasisEnd)event).getChannel().getId()));
+			reapChannel(((StasisEnd)event).getChannel().getId());
+		else if (event instanceof ChannelDestroyed) // channels that never entered stasis don't get a stasis end
+			reapChannel(((ChannelDestroyed)event).getChannel().getId());
+	}
+
+	private void reapChannel(String channelId) {
+		Collection<EventHandler<?>> reaped = eventHandlers.removeChannel(channelId);
+		if (!reaped.isEmpty())
+			logger.debug("Removed {} event handlers of ended channel {}", reaped.size(), channelId);
+		stasisStartListeners.remove(channelId);
+	}
+
+	private void handleObjectEvents(Message event, String objectKey, boolean inline, long received) {
+		eventHandlers.dispatch(event, objectKey, inline, received);
+		if (event instanceof BridgeDestroyed) { // clear event handlers and members for this bridge
+			eventHandlers.removeChannel(objectKey);
+			bridgeMemberships.remove(objectKey);
+		}
+	}
+
+	/**
+	 * Retrieve the locally tracked members of a bridge, starting to track the bridge if it is not tracked yet. The
+	 * membership set is shared by all the objects that access the bridge and is discarded when the bridge is destroyed.
+	 *
+	 * Only call this for bridges that are known to exist, or are about to be created: the set of a bridge that was
+	 * already destroyed is never discarded by a BridgeDestroyed event, and is only discarded by the next
+	 * {@link #resynchronize()}.
+	 * @param bridgeId ID of the bridge
+	 * @return the bridge's membership set
+	 */
+	public BridgeMembership getBridgeMembership(String bridgeId) {
+		return bridgeMemberships.computeIfAbsent(EventRouting.bridgeKey(bridgeId), k -> new BridgeMembership());
 	}
 
-	private void handleStasisStart(Message event) {
+	/**
+	 * Stop tracking the members of a bridge that turned out not to exist, for example because creating it failed,
+	 * unless the membership set was synchronized with the bridge since it was retrieved
+	 * @param bridgeId ID of the bridge
+	 * @param membership the membership set retrieved using {@link #getBridgeMembership(String)}
+	 */
+	void discardBridgeMembership(String bridgeId, BridgeMembership membership) {
+		if (!membership.isSynced())
+			bridgeMemberships.remove(EventRouting.bridgeKey(bridgeId), membership);
+	}
+
+	private void handleStasisStart(Message event, long received) {
+		metrics.eventDispatched(event.getType(), System.nanoTime() - received);
 		StasisStart ss = (StasisStart) event;
 		if ("h".equals(ss.getChannel().getDialplan().getExten())) {
 			logger.debug("Ignoring Stasis Start with 'h' extension, listen on channel hangup event if you want to handle hangups");
@@ -328,11 +920,19 @@ public class ARIty implements AriCallback<Message> {
 		}
 
 		logger.debug("Stasis started with asterisk id: " + event.getAsterisk_id() + " and channel id is: " + ss.getChannel().getId());
+		CircuitBreaker breaker = circuitBreaker;
+		if (Objects.nonNull(breaker) && breaker.getState() == CircuitBreaker.State.OPEN) {
+			rejectCall(ss.getChannel().getId(), "circuit breaker is open");
+			return;
+		}
 		try {
 			CallController cc = Objects.requireNonNull(callSupplier.get(),
 					"User call controller supplier failed to provide a CallController to handle the call");
 			cc.init(callState);
-			(autoBindBridges ? cc.bindToBridge() : CompletableFuture.completedFuture(null)).thenComposeAsync(v -> cc.run(), threadpool).whenComplete((v,t) -> {
+			List<String> prefetch = prefetchVariables;
+			CompletableFuture.allOf(autoBindBridges ? cc.bindToBridge() : CompletableFuture.completedFuture(null),
+					prefetch.isEmpty() ? CompletableFuture.completedFuture(null) : callState.readVariables(prefetch))
+			.thenComposeAsync(v -> cc.run(), threadpool).whenComplete((v,t) -> {
 				if (Objects.nonNull(t)) {
 					logger.error("Completation error while running the application ",t);
 					channels().hangup(callState.getChannelId());
@@ -345,55 +945,197 @@ public class ARIty implements AriCallback<Message> {
 	}
 
 	/**
-	 * get the channel id of the current event. if no channel id to this event, null
-	 * is returned
-	 *
-	 * @param event event message that we are checking
-	 * @return
+	 * Check whether ARIty expects a channel to enter Stasis, because it was created by the application
+	 * @param channelId ID of the channel
+	 * @return whether an application start handler was registered for the channel
 	 */
-	private String getEventChannelId(Message event) {
-		if (event instanceof DeviceStateChanged || event instanceof BridgeCreated || event instanceof BridgeDestroyed)
-			return null; // skip this, it never has a channel
-
-		if (event instanceof ch.loway.oss.ari4java.generated.models.Dial)
-			return ((ch.loway.oss.ari4java.generated.models.Dial) event).getPeer().getId();
+	boolean isExpectedChannel(String channelId) {
+		return stasisStartListeners.containsKey(channelId);
+	}
 
-		if (event instanceof PlaybackStarted)
-			return ((PlaybackStarted) event).getPlayback().getTarget_uri()
-					.substring(((PlaybackStarted) event).getPlayback().getTarget_uri().indexOf(":") + 1);
+	/**
+	 * Reject a new incoming call by hanging it up with congestion
+	 * @param channelId ID of the call's channel
+	 * @param reason why the call is rejected, for logging
+	 */
+	void rejectCall(String channelId, String reason) {
+		logger.warn("Rejecting call {}: {}", channelId, reason);
+		// hang up without an ARIty instance, so the request is not blocked by an open circuit breaker
+		Operation.<Void>retry(cb -> ari.channels().hangup(channelId)
+				.setReason(HangupReasons.CONGESTION.toString()).execute(cb))
+		.exceptionally(t -> {
+			logger.warn("Failed to reject call {}: {}", channelId, t.toString());
+			return null;
+		});
+	}
 
-		if (event instanceof PlaybackFinished)
-			return ((PlaybackFinished) event).getPlayback().getTarget_uri()
-					.substring(((PlaybackFinished) event).getPlayback().getTarget_uri().indexOf(":") + 1);
+	@Override
+	public void onFailure(RestException e) {
+		logger.warn(e.getMessage());
+		ce.accept(e);
+		if (websocketOpened && !disconnected && Objects.nonNull(reconnectPolicy) && reconnecting.compareAndSet(false, true))
+			scheduleReconnect();
+	}
 
-		if (event instanceof RecordingStarted)
-			return ((RecordingStarted) event).getRecording().getTarget_uri()
-					.substring(((RecordingStarted) event).getRecording().getTarget_uri().indexOf(":") + 1);
-		if (event instanceof RecordingFinished)
-			return ((RecordingFinished) event).getRecording().getTarget_uri()
-					.substring(((RecordingFinished) event).getRecording().getTarget_uri().indexOf(":") + 1);
+	private void scheduleReconnect() {
+		RetryPolicy policy = reconnectPolicy;
+		int attempt = reconnectAttempts.incrementAndGet();
+		if (disconnected || Objects.isNull(policy) || attempt > policy.getMaxRetries()) {
+			logger.error("Giving up reconnecting the websocket after {} attempts", attempt - 1);
+			reconnecting.set(false);
+			return;
+		}
+		long delay = reconnectDelay = policy.nextDelay(attempt, reconnectDelay);
+		logger.info("Reconnecting the websocket in {}ms (attempt {})", delay, attempt);
+		SharedTimer.schedule(() -> threadpool.execute(this::reconnect), delay);
+	}
 
+	private void reconnect() {
+		if (disconnected) {
+			reconnecting.set(false);
+			return;
+		}
 		try {
-			Class<?> msgClass = event.getClass();
-			Object chan = msgClass.getMethod("getChannel").invoke(event);
-			if (Objects.nonNull(chan))
-				return ((Channel) chan).getId();
-			logger.warn("Channel ID is not set for event " + event);
-		} catch (NoSuchMethodException | SecurityException | IllegalAccessException | IllegalArgumentException
-				| InvocationTargetException e) {
-			logger.warn("Can not get channel id for event " + event + ": " + e);
+			ari.closeAction(ari.events());
+			ari.events().eventWebsocket(appName).setSubscribeAll(true).execute(this);
+		} catch (Throwable t) {
+			logger.warn("Failed to reconnect the websocket: {}", t.toString());
+			ce.accept(new ConnectionFailedException(t));
+			scheduleReconnect();
+			return;
 		}
-		return null;
+		logger.info("Websocket is open");
+		reconnecting.set(false);
+		resynchronize();
 	}
 
-	@Override
-	public void onFailure(RestException e) {
-		logger.warn(e.getMessage());
-		ce.accept(e);
+	/**
+	 * Reconcile the call states of live channels with the channels that are currently active in Asterisk, for
+	 * example after events may have been lost while the websocket was disconnected: call states of channels that no
+	 * longer exist are hung up - running their hangup handlers - and the event handlers of those channels are
+	 * removed; call states of channels that still exist get an updated channel snapshot and state. The locally
+	 * tracked bridge members (see {@link BridgeMembership}) are reloaded in the same way, and are answered from
+	 * Asterisk until they are.
+	 *
+	 * This is called automatically after the websocket is reconnected.
+	 * @return a promise that will be fulfilled when all the call states and bridge members were reconciled
+	 */
+	public CompletableFuture<Void> resynchronize() {
+		stateObservers.forEach(StateObserver::resynchronizing);
+		Map<String, BridgeMembership> synced = desynchronizeBridges();
+		CompletableFuture<List<Channel>> channels = getActiveChannels();
+		CompletableFuture<List<ch.loway.oss.ari4java.generated.models.Bridge>> bridges =
+				synced.isEmpty() && stateObservers.isEmpty() ? CompletableFuture.completedFuture(Collections.emptyList()) :
+				Operation.retry(this, "ARIty.listBridges", cb -> ari.bridges().list().execute(cb));
+		CompletableFuture<Void> observed = stateObservers.isEmpty() ? CompletableFuture.completedFuture(null) :
+				channels.thenAcceptBoth(bridges, (c, b) -> stateObservers.forEach(o -> o.resynchronized(c, b)))
+				.exceptionally(t -> {
+					logger.warn("Failed to resynchronize state observers: {}", t.toString());
+					stateObservers.forEach(StateObserver::resynchronizeFailed);
+					return null;
+				});
+		return CompletableFuture.allOf(resynchronizeCallStates(channels), resynchronizeBridges(synced, bridges), observed);
+	}
+
+	private CompletableFuture<Void> resynchronizeCallStates(CompletableFuture<List<Channel>> activeChannels) {
+		return activeChannels.thenAccept(channels -> {
+			Map<String, Channel> active = new HashMap<>();
+			for (Channel channel : channels)
+				active.put(channel.getId(), channel);
+			ChannelRegistry registry = channelRegistry;
+			if (Objects.nonNull(registry))
+				registry.reconcile(active);
+			int total = 0, ended = 0;
+			for (CallState callState : liveCallStates) {
+				String channelId = callState.getChannelId();
+				Channel channel = active.get(channelId);
+				// the new websocket may already be delivering this channel's events, so run in their order when serialized
+				channelExecutor.execute(channelId, () -> {
+					callState.resynchronize(channel);
+					if (Objects.isNull(channel))
+						reapChannel(channelId);
+				});
+				if (Objects.isNull(channel))
+					ended++;
+				total++;
+			}
+			logger.info("Resynchronized {} call states, {} of their channels ended while disconnected", total, ended);
+		}).exceptionally(t -> {
+			logger.warn("Failed to resynchronize call states: {}", t.toString());
+			return null;
+		});
+	}
+
+	/**
+	 * Mark the synchronized bridge membership sets as stale, as bridge events may have been lost, so they are
+	 * answered from Asterisk until they are reloaded
+	 * @return the membership sets that were synchronized, by their bridge routing keys
+	 */
+	private Map<String, BridgeMembership> desynchronizeBridges() {
+		Map<String, BridgeMembership> synced = new HashMap<>();
+		bridgeMemberships.forEach((key, membership) -> {
+			if (membership.isSynced()) {
+				membership.desync();
+				synced.put(key, membership);
+			}
+		});
+		return synced;
+	}
+
+	private CompletableFuture<Void> resynchronizeBridges(Map<String, BridgeMembership> synced,
+			CompletableFuture<List<ch.loway.oss.ari4java.generated.models.Bridge>> activeBridges) {
+		if (synced.isEmpty())
+			return CompletableFuture.completedFuture(null);
+		return activeBridges.thenAccept(bridges -> {
+			int total = synced.size();
+			for (ch.loway.oss.ari4java.generated.models.Bridge bridge : bridges) {
+				BridgeMembership membership = synced.remove(EventRouting.bridgeKey(bridge.getId()));
+				if (Objects.nonNull(membership))
+					membership.reset(bridge.getChannels());
+			}
+			synced.forEach((key, membership) -> { // destroyed while disconnected
+				if (bridgeMemberships.remove(key, membership))
+					eventHandlers.removeChannel(key);
+			});
+			logger.info("Resynchronized {} bridges, {} of them were destroyed while disconnected", total, synced.size());
+		}).exceptionally(t -> {
+			logger.warn("Failed to resynchronize bridges: {}", t.toString());
+			return null;
+		});
+	}
+
+	/**
+	 * Add an observer of the events ARIty receives and of its resynchronizations
+	 * @param observer observer to add
+	 */
+	void addStateObserver(StateObserver observer) {
+		stateObservers.add(observer);
+	}
+
+	/**
+	 * Track a call state, so it can be resynchronized after the websocket reconnects
+	 * @param callState call state of a live channel
+	 */
+	void trackCallState(CallState callState) {
+		liveCallStates.add(callState);
+		ChannelRegistry registry = channelRegistry;
+		if (Objects.nonNull(registry))
+			registry.attach(callState);
+	}
+
+	/**
+	 * Stop tracking a call state whose channel ended
+	 * @param callState call state of a channel that ended
+	 */
+	void untrackCallState(CallState callState) {
+		liveCallStates.remove(callState);
 	}
 
 	/**
 	 * Register an event handler for a specific message on a specific channel
+	 *
+	 * Instead of a channel ID, the handler may be registered on the routing key of a bridge, playback or recording
+	 * (see {@link EventRouting}) to receive only the events of that object.
 	 * @param type          type of message to listen to (example: PlaybackFinished)
 	 * @param channelId     id of the channel to listen on
 	 * @param eventHandler  handler to call when the event arrives
@@ -414,16 +1156,83 @@ public class ARIty implements AriCallback<Message> {
 	public <T extends Message> EventHandler<T> addGeneralEventHandler(Class<T> type, BiConsumer<T, EventHandler<T>> eventHandler) {
 		logger.debug("Registering for {} global events", type.getSimpleName());
 		EventHandler<T> se = new EventHandler<T>(null, eventHandler, type, this);
-		rawEventHandlers.add(se);
+		generalEventHandlers.subscribe(se);
 		return se;
 	}
 
+	/**
+	 * Subscribe to all events of a specific type, on all channels.
+	 *
+	 * The handler also receives events of sub-types of the requested type, so subscribing to {@link Message}
+	 * receives all events. Call {@link EventHandler#unregister()} on the returned handler to stop receiving events.
+	 * @param type          type of message to listen to (example: ChannelDtmfReceived)
+	 * @param eventHandler  handler to call when an event arrives
+	 * @return the registered event handler
+	 */
+	public <T extends Message> EventHandler<T> subscribe(Class<T> type, Consumer<T> eventHandler) {
+		return addGeneralEventHandler(type, (t,se) -> eventHandler.accept(t));
+	}
+
+	/**
+	 * Subscribe to all events of a specific type on a specific channel, or on the routing key of a bridge, playback
+	 * or recording (see {@link EventRouting}).
+	 *
+	 * Call {@link EventHandler#unregister()} on the returned handler to stop receiving events. The handler is
+	 * unregistered automatically when the channel leaves Stasis.
+	 * @param type          type of message to listen to (example: ChannelDtmfReceived)
+	 * @param channelId     id of the channel to listen on
+	 * @param eventHandler  handler to call when an event arrives
+	 * @return the registered event handler
+	 */
+	public <T extends Message> EventHandler<T> subscribe(Class<T> type, String channelId, Consumer<T> eventHandler) {
+		return addEventHandler(type, channelId, (t,se) -> eventHandler.accept(t));
+	}
+
+	/**
+	 * Check how many event handlers are currently registered
+	 * @return number of channel specific and general event handlers
+	 */
+	public int getEventHandlerCount() {
+		return eventHandlers.size() + generalEventHandlers.size();
+	}
+
+	/**
+	 * Generate a description of all the event handlers currently registered, grouped by channel and message type.
+	 * This is useful to find handlers that are not unregistered when they are no longer needed.
+	 * @return a multi-line description of the registered event handlers
+	 */
+	public String dumpEventHandlers() {
+		StringBuilder out = new StringBuilder("Event handlers: ").append(getEventHandlerCount()).append("\n");
+		eventHandlers.snapshot().forEach((id, byType) -> {
+			out.append(id).append(":\n");
+			byType.forEach((type, handlers) -> {
+				out.append("\t").append(type).append(" (").append(handlers.size()).append("):\n");
+				handlers.forEach(h -> out.append("\t\t").append(h).append("\n"));
+			});
+		});
+		if (generalEventHandlers.size() > 0) {
+			out.append("general:\n");
+			generalEventHandlers.handlers().forEach(h -> out.append("\t").append(h).append("\n"));
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Link a handler registered on a routing key to a channel or bridge, so it is removed together with their handlers
+	 * @param handler handler to link
+	 * @param channelId channel ID or bridge routing key to link to
+	 */
+	void linkEventHandler(EventHandler<?> handler, String channelId) {
+		if (Objects.nonNull(handler.getChannelId()))
+			eventHandlers.link(handler, channelId);
+	}
+
 	/**
 	 * remove event handler when no need to listen to it anymore
 	 * @param handler the event handler to be removed
 	 */
 	public <T extends Message> void removeEventHandler(EventHandler<T>handler) {
-		if(eventHandlers.remove(handler))
+		if (Objects.isNull(handler.getChannelId()) ? generalEventHandlers.unsubscribe(handler) : eventHandlers.remove(handler))
 			logger.debug("Event {} was removed", handler);
 	}
 
@@ -443,6 +1252,25 @@ public class ARIty implements AriCallback<Message> {
 		});
 	}
 
+	/**
+	 * Wait for a specific message on a specific channel, for a limited time.
+	 *
+	 * The event handler is unregistered when the event arrives or when the timeout expires, whichever happens first,
+	 * or if the returned promise is cancelled.
+	 * @param type          type of message to listen to (example: PlaybackFinished)
+	 * @param channelId     id of the channel to listen on
+	 * @param timeout       how long to wait for the event, in milliseconds. If the timeout is not positive, wait forever
+	 * @return a promise that will be fulfilled with the event, or fail with an {@link EventTimeoutException} if the
+	 *   event did not arrive in time
+	 */
+	public <T extends Message> CompletableFuture<T> listenForOneTimeEvent(Class<T> type, String channelId, long timeout) {
+		CompletableFuture<T> event = new CompletableFuture<>();
+		listenForOneTimeEvent(type, channelId, event::complete).withTimeout(timeout,
+				() -> event.completeExceptionally(new EventTimeoutException(type.getSimpleName(), channelId)))
+				.ownedBy(event);
+		return event;
+	}
+
 	/**
 	 * get the name of the application
 	 *
@@ -468,6 +1296,8 @@ public class ARIty implements AriCallback<Message> {
 	 * disconnect from the websocket (user's choice if to call it or not)
 	 */
 	public void disconnect() {
+		disconnected = true;
+		setIngestionBuffer(0);
 		ari.cleanup();
 	}
 
@@ -523,7 +1353,7 @@ public class ARIty implements AriCallback<Message> {
 	 * @return
 	 */
 	public CompletableFuture<List<Channel>> getActiveChannels(){
-		return Operation.retry(cb -> ari.channels().list().execute(cb));
+		return Operation.retry(this, "ARIty.getActiveChannels", cb -> ari.channels().list().execute(cb));
 	}
 
 	public Channels channels() {
@@ -0,0 +1,338 @@
+package io.cloudonix.arity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.loway.oss.ari4java.generated.models.Bridge;
+import ch.loway.oss.ari4java.generated.models.BridgeCreated;
+import ch.loway.oss.ari4java.generated.models.BridgeDestroyed;
+import ch.loway.oss.ari4java.generated.models.Channel;
+import ch.loway.oss.ari4java.generated.models.ChannelCreated;
+import ch.loway.oss.ari4java.generated.models.ChannelDestroyed;
+import ch.loway.oss.ari4java.generated.models.Message;
+import io.cloudonix.arity.errors.dial.ChannelNotFoundException;
+
+/**
+ * A group of ARIty instances, each connected to a different Asterisk server, that serve the same application.
+ *
+ * The cluster registers the voice application on all the members, so incoming calls from all the servers are handled
+ * by the same application code, and tracks which member owns each channel and bridge from the events each member
+ * receives - so that later operations on a channel or a bridge can be sent to the Asterisk server that owns it,
+ * using {@link #forChannel(String)} and {@link #forBridge(String)}. New outgoing calls are placed on a member
+ * selected by the cluster's {@link PlacementPolicy}.
+ *
+ * Ownership is learned from the channel and bridge creation events, in the order each member received them, so a
+ * channel or a bridge is only known to the cluster after the owning member received its creation event. When a member
+ * reconnects and resynchronizes (see {@link ARIty#resynchronize()}), its channels and bridges are rebuilt from the
+ * ones that are active in its Asterisk server.
+ *
+ * @author odeda
+ */
+public class ARItyCluster {
+	private final static Logger logger = LoggerFactory.getLogger(ARItyCluster.class);
+
+	/**
+	 * Strategy for selecting the member to place a new outgoing call on
+	 */
+	@FunctionalInterface
+	public static interface PlacementPolicy {
+		/**
+		 * Place new calls on the member with the least active channels
+		 */
+		public static final PlacementPolicy LEAST_ACTIVE_CHANNELS = cluster -> cluster.getMembers().stream()
+				.min(Comparator.comparingInt(cluster::getActiveChannelCount)).orElse(null);
+
+		/**
+		 * Place new calls on each member in turn
+		 */
+		public static PlacementPolicy roundRobin() {
+			AtomicInteger next = new AtomicInteger();
+			return cluster -> {
+				List<ARIty> members = cluster.getMembers();
+				return members.get(Math.floorMod(next.getAndIncrement(), members.size()));
+			};
+		}
+
+		/**
+		 * Select the member to place a new call on
+		 * @param cluster the cluster to select a member from
+		 * @return the selected member
+		 */
+		ARIty select(ARItyCluster cluster);
+	}
+
+	private final List<ARIty> members;
+	private final Map<String, ARIty> channelOwners = new ConcurrentHashMap<>();
+	private final Map<String, ARIty> bridgeOwners = new ConcurrentHashMap<>();
+	private final Map<String, ARIty> asteriskOwners = new ConcurrentHashMap<>();
+	private final Map<ARIty, AtomicInteger> activeChannels = new ConcurrentHashMap<>();
+	private volatile PlacementPolicy placementPolicy = PlacementPolicy.roundRobin();
+
+	/**
+	 * Create a cluster from connected ARIty instances
+	 * @param members ARIty instances, each connected to a different Asterisk server
+	 */
+	public ARItyCluster(ARIty... members) {
+		this(Arrays.asList(members));
+	}
+
+	/**
+	 * Create a cluster from connected ARIty instances
+	 * @param members ARIty instances, each connected to a different Asterisk server
+	 */
+	public ARItyCluster(List<ARIty> members) {
+		if (members.isEmpty())
+			throw new IllegalArgumentException("A cluster must have at least one member");
+		this.members = Collections.unmodifiableList(members);
+		for (ARIty member : members) {
+			activeChannels.put(member, new AtomicInteger());
+			member.addStateObserver(new MemberTracker(member));
+		}
+	}
+
+	/**
+	 * Set the policy for selecting the member to place new outgoing calls on. The default is round robin.
+	 * @param policy placement policy
+	 * @return itself for fluent calls
+	 */
+	public ARItyCluster setPlacementPolicy(PlacementPolicy policy) {
+		placementPolicy = Objects.requireNonNull(policy);
+		return this;
+	}
+
+	/**
+	 * Register the voice application on all the members of the cluster
+	 * @param controllorSupplier the supplier that creates a new call controller for each incoming call
+	 * @return itself for fluent calls
+	 */
+	public ARItyCluster registerVoiceApp(Supplier<CallController> controllorSupplier) {
+		members.forEach(m -> m.registerVoiceApp(controllorSupplier));
+		return this;
+	}
+
+	/**
+	 * Register the voice application on all the members of the cluster
+	 * @param cc the application entry point, that is called with a call controller for each incoming call
+	 * @return itself for fluent calls
+	 */
+	public ARItyCluster registerVoiceApp(Consumer<CallController> cc) {
+		members.forEach(m -> m.registerVoiceApp(cc));
+		return this;
+	}
+
+	/**
+	 * Register an event handler for events of the specified type from all the members of the cluster, merging their
+	 * event streams
+	 * @param type type of events to listen to
+	 * @param eventHandler handler that receives the events, together with the member that received each event
+	 * @return the handlers registered on each member, that can be used to unregister them
+	 */
+	public <T extends Message> List<EventHandler<T>> subscribe(Class<T> type, BiConsumer<ARIty, T> eventHandler) {
+		List<EventHandler<T>> handlers = new ArrayList<>(members.size());
+		for (ARIty member : members)
+			handlers.add(member.subscribe(type, e -> eventHandler.accept(member, e)));
+		return handlers;
+	}
+
+	/**
+	 * Retrieve the members of the cluster
+	 * @return the ARIty instances in the cluster
+	 */
+	public List<ARIty> getMembers() {
+		return members;
+	}
+
+	/**
+	 * Find the member connected to the Asterisk server that owns a channel
+	 * @param channelId ID of the channel
+	 * @return the owning member, or <code>null</code> if the channel is not known to the cluster
+	 */
+	public ARIty forChannel(String channelId) {
+		return channelOwners.get(channelId);
+	}
+
+	/**
+	 * Find the member connected to the Asterisk server that owns a bridge
+	 * @param bridgeId ID of the bridge
+	 * @return the owning member, or <code>null</code> if the bridge is not known to the cluster
+	 */
+	public ARIty forBridge(String bridgeId) {
+		return bridgeOwners.get(bridgeId);
+	}
+
+	/**
+	 * Find the member connected to a specific Asterisk server
+	 * @param asteriskId the Asterisk server's ID, as reported in ARI events
+	 * @return the member connected to that server, or <code>null</code> if no events were received from it yet
+	 */
+	public ARIty forAsterisk(String asteriskId) {
+		return asteriskOwners.get(asteriskId);
+	}
+
+	/**
+	 * Check how many channels are active on a member's Asterisk server
+	 * @param member member of the cluster
+	 * @return number of channels created and not yet destroyed, as seen from the member's events
+	 */
+	public int getActiveChannelCount(ARIty member) {
+		AtomicInteger count = activeChannels.get(member);
+		return Objects.nonNull(count) ? count.get() : 0;
+	}
+
+	/**
+	 * Retrieve the call state of a channel from the Asterisk server that owns it
+	 * @param channelId ID of the channel
+	 * @return A promise for a new call state instance for that channel, that will fail with a
+	 *   {@link ChannelNotFoundException} if the channel is not known to the cluster
+	 */
+	public CompletableFuture<CallState> getCallState(String channelId) {
+		ARIty owner = forChannel(channelId);
+		if (Objects.isNull(owner))
+			return CompletableFuture.failedFuture(new ChannelNotFoundException("Channel " + channelId + " is not known to the cluster"));
+		return owner.getCallState(channelId);
+	}
+
+	/**
+	 * Initiate an unsolicited dial on the member selected by the placement policy
+	 * @param callerId Caller ID to be published to the destination
+	 * @param destination Asterisk endpoint to be dialed to (including technology and URL)
+	 * @return a Dial operation to configure further and run
+	 */
+	public Dial dial(String callerId, String destination) {
+		ARIty member = Objects.requireNonNull(placementPolicy.select(this), "Placement policy did not select a member");
+		logger.debug("Placing call to {} on {}", destination, member.getAppName());
+		return member.dial(callerId, destination);
+	}
+
+	/**
+	 * Disconnect all the members of the cluster
+	 */
+	public void disconnect() {
+		members.forEach(ARIty::disconnect);
+	}
+
+	private void trackChannel(ARIty member, Message event, String channelId) {
+		if (track(member, event, channelOwners, channelId))
+			activeChannels.get(member).incrementAndGet();
+	}
+
+	private void untrackChannel(ARIty member, String channelId) {
+		if (channelOwners.remove(channelId, member))
+			activeChannels.get(member).decrementAndGet();
+	}
+
+	private boolean track(ARIty member, Message event, Map<String, ARIty> owners, String id) {
+		if (Objects.nonNull(event) && Objects.nonNull(event.getAsterisk_id()))
+			asteriskOwners.putIfAbsent(event.getAsterisk_id(), member);
+		return Objects.isNull(owners.putIfAbsent(id, member));
+	}
+
+	private Set<String> ownedBy(ARIty member, Map<String, ARIty> owners) {
+		Set<String> owned = new HashSet<>();
+		owners.forEach((id, owner) -> {
+			if (owner == member)
+				owned.add(id);
+		});
+		return owned;
+	}
+
+	/**
+	 * Tracks the channels and bridges of a member, from the events the member receives - in the order it receives
+	 * them, so a channel destroyed right after it was created is not left behind - and from its resynchronizations
+	 */
+	private class MemberTracker implements ARIty.StateObserver {
+		private final ARIty member;
+		private volatile Set<String> channelsBeforeResync = Collections.emptySet();
+		private volatile Set<String> bridgesBeforeResync = Collections.emptySet();
+		private final Set<String> destroyedDuringResync = ConcurrentHashMap.newKeySet();
+		private volatile boolean resynchronizing = false;
+
+		MemberTracker(ARIty member) {
+			this.member = member;
+		}
+
+		@Override
+		public void event(Message event) {
+			if (event instanceof ChannelCreated)
+				trackChannel(member, event, ((ChannelCreated) event).getChannel().getId());
+			else if (event instanceof ChannelDestroyed)
+				untrackChannel(member, destroyed(((ChannelDestroyed) event).getChannel().getId()));
+			else if (event instanceof BridgeCreated)
+				track(member, event, bridgeOwners, ((BridgeCreated) event).getBridge().getId());
+			else if (event instanceof BridgeDestroyed)
+				bridgeOwners.remove(destroyed(((BridgeDestroyed) event).getBridge().getId()), member);
+		}
+
+		/**
+		 * Remember channels and bridges destroyed during a resynchronization, as they may still be in the lists
+		 * @param id ID of the destroyed channel or bridge
+		 * @return the ID
+		 */
+		private String destroyed(String id) {
+			if (resynchronizing)
+				destroyedDuringResync.add(id);
+			return id;
+		}
+
+		@Override
+		public void resynchronizing() {
+			// channels and bridges created while the active ones are listed are not in the lists, so only drop the
+			// ones that were known before listing
+			destroyedDuringResync.clear();
+			resynchronizing = true;
+			channelsBeforeResync = ownedBy(member, channelOwners);
+			bridgesBeforeResync = ownedBy(member, bridgeOwners);
+		}
+
+		@Override
+		public void resynchronized(List<Channel> channels, List<Bridge> bridges) {
+			Set<String> active = new HashSet<>();
+			for (Channel channel : channels) {
+				active.add(channel.getId());
+				if (!destroyedDuringResync.contains(channel.getId()))
+					trackChannel(member, null, channel.getId());
+			}
+			for (String id : channelsBeforeResync)
+				if (!active.contains(id))
+					untrackChannel(member, id);
+			active.clear();
+			for (Bridge bridge : bridges) {
+				active.add(bridge.getId());
+				if (!destroyedDuringResync.contains(bridge.getId()))
+					track(member, null, bridgeOwners, bridge.getId());
+			}
+			for (String id : bridgesBeforeResync)
+				if (!active.contains(id))
+					bridgeOwners.remove(id, member);
+			endResynchronize();
+			logger.info("Rebuilt the channels and bridges of {}: {} channels, {} bridges", member.getAppName(),
+					getActiveChannelCount(member), bridges.size());
+		}
+
+		@Override
+		public void resynchronizeFailed() {
+			endResynchronize();
+		}
+
+		private void endResynchronize() {
+			resynchronizing = false;
+			destroyedDuringResync.clear();
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package io.cloudonix.arity;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Instrumentation interface for reporting ARIty's event dispatch and ARI operation performance to a metrics system.
+ *
+ * All methods have empty default implementations, so implementations only need to override the measurements they
+ * are interested in. Latencies are reported as raw nanosecond values, to be aggregated into histograms or timers
+ * by the implementation. Methods are called on ARIty's event and completion threads and must not block.
+ *
+ * Install an implementation using {@link ARIty#setMetrics(ARItyMetrics)}.
+ *
+ * @author odeda
+ */
+public interface ARItyMetrics {
+
+	/**
+	 * Metrics implementation that ignores all measurements
+	 */
+	public static final ARItyMetrics NOOP = new ARItyMetrics() {};
+
+	/**
+	 * An event was received from the ARI websocket
+	 * @param type ARI event type, for example <code>StasisStart</code>
+	 */
+	default void eventReceived(String type) {}
+
+	/**
+	 * An event handler started handling an event
+	 * @param type ARI event type, for example <code>StasisStart</code>
+	 * @param latencyNanos time from when the event was received from the websocket until the handler started
+	 */
+	default void eventDispatched(String type, long latencyNanos) {}
+
+	/**
+	 * An ARI request completed, successfully or not
+	 * @param operation name of the operation that sent the request, for example <code>Play</code> or <code>Bridge.addChannel</code>
+	 * @param latencyNanos time from sending the request until the response was received
+	 * @param failure the error received from ARI, or <code>null</code> if the request was successful
+	 */
+	default void operationCompleted(String operation, long latencyNanos, Throwable failure) {}
+
+	/**
+	 * An ARI operation is going to be retried
+	 * @param operation name of the operation being retried
+	 * @param failure the error that caused the retry
+	 */
+	default void operationRetried(String operation, Throwable failure) {}
+
+	/**
+	 * An ARI operation failed and will not be retried
+	 * @param operation name of the operation that failed
+	 * @param failure the error reported to the caller of the operation
+	 */
+	default void operationFailed(String operation, Throwable failure) {}
+
+	/**
+	 * Register a value that should be sampled by the metrics system, such as the number of registered event handlers.
+	 * This method is called when the metrics implementation is installed.
+	 * @param name name of the value
+	 * @param value provider of the current value
+	 */
+	default void registerGauge(String name, LongSupplier value) {}
+}
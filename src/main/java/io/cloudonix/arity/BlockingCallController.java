@@ -0,0 +1,66 @@
+package io.cloudonix.arity;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A call controller that implements its program logic as blocking code, instead of composing {@link CompletableFuture}s.
+ *
+ * Implementations override {@link #runBlocking()} and can simply wait for operations to complete using
+ * {@link #await(CompletableFuture)}, for example:
+ * <pre>
+ * protected void runBlocking() throws Exception {
+ *     await(answer().run());
+ *     await(play("hello-world").run());
+ *     await(hangup().run());
+ * }
+ * </pre>
+ *
+ * Each call blocks a thread of the ARIty executor service for its entire duration, so this type of call controller
+ * should be used with {@link ARIty#useVirtualThreads()}, or with an executor service that is sized for the expected
+ * number of concurrent calls.
+ *
+ * @author odeda
+ */
+public abstract class BlockingCallController extends CallController {
+
+	/**
+	 * Implement the call controller logic, blocking until it is done
+	 * @throws Exception any error will be reported as the failure of the call controller's {@link #run()}
+	 */
+	protected abstract void runBlocking() throws Exception;
+
+	@Override
+	public CompletableFuture<Void> run() {
+		return CompletableFuture.runAsync(() -> {
+			try {
+				runBlocking();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			}
+		}, getARIty().getExecutorService());
+	}
+
+	/**
+	 * Wait for an operation to complete and retrieve its result
+	 * @param <T> type of the operation result
+	 * @param promise the promise returned by an operation's <code>run()</code> method, or any other promise
+	 * @return the result of the operation
+	 * @throws Exception the error that failed the operation
+	 */
+	protected <T> T await(CompletableFuture<T> promise) throws Exception {
+		try {
+			return promise.get();
+		} catch (ExecutionException e) {
+			Throwable cause = Operation.unwrapCompletionError(e.getCause());
+			if (cause instanceof Exception)
+				throw (Exception) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw e;
+		}
+	}
+}
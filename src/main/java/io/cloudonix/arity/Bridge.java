@@ -1,7 +1,9 @@
 package io.cloudonix.arity;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -18,6 +20,7 @@ import ch.loway.oss.ari4java.generated.models.Playback;
 import ch.loway.oss.ari4java.generated.models.PlaybackFinished;
 import ch.loway.oss.ari4java.generated.models.RecordingFinished;
 import ch.loway.oss.ari4java.tools.RestException;
+import io.cloudonix.arity.errors.EventTimeoutException;
 import io.cloudonix.arity.errors.bridge.BridgeNotFoundException;
 import io.cloudonix.arity.errors.bridge.ChannelNotAllowedInBridge;
 import io.cloudonix.arity.errors.bridge.ChannelNotInBridgeException;
@@ -40,6 +43,7 @@ public class Bridge {
 	private String name;
 	private ConcurrentHashMap<String, CompletableFuture<Void>> enteredEventListeners = new ConcurrentHashMap<>();
 	private ConcurrentHashMap<String, CompletableFuture<Void>> leftEventListeners = new ConcurrentHashMap<>();
+	private volatile BridgeMembership membership;
 
 	/**
 	 * Create a new Bridge object with a unique ID
@@ -72,11 +76,19 @@ public class Bridge {
 	public CompletableFuture<Bridge> create(String bridgeName) {
 		logger.info("Creating bridge with name: " + bridgeName + ", with id: " + bridgeId + " , and bridge type: "
 				+ bridgeType);
-		return Operation.<ch.loway.oss.ari4java.generated.models.Bridge>retry(cb -> api.createWithId(bridgeId)
+		// track members before creating, so no events of the new bridge are missed
+		BridgeMembership tracked = arity.getBridgeMembership(bridgeId);
+		return Operation.<ch.loway.oss.ari4java.generated.models.Bridge>retry(arity, "Bridge.create", cb -> api.createWithId(bridgeId)
 				.setType(bridgeType).setName(bridgeName).execute(cb),
 				this::mapExceptions)
+				.whenComplete((b, t) -> {
+					if (Objects.nonNull(t))
+						arity.discardBridgeMembership(bridgeId, tracked);
+				})
 				.thenApply(b -> {
 					this.name = b.getName();
+					tracked.created();
+					membership = tracked;
 					return this;
 				});
 	}
@@ -88,7 +100,7 @@ public class Bridge {
 	 */
 	public CompletableFuture<Void> destroy() {
 		logger.info("Destroying bridge with id: " + bridgeId);
-		return Operation.<Void>retry(cb -> api.destroy(bridgeId).execute(cb), this::mapExceptions)
+		return Operation.<Void>retry(arity, "Bridge.destroy", cb -> api.destroy(bridgeId).execute(cb), this::mapExceptions)
 				.exceptionally(Futures.on(BridgeNotFoundException.class, e -> { return null; }))
 				.thenAccept(v -> {
 			recordings.clear();
@@ -119,8 +131,9 @@ public class Bridge {
 		CompletableFuture<Void> waitForAdded = confirmWasAdded ?
 				waitForChannelEntered(channelId) : CompletableFuture.completedFuture(null);
 		logger.info("Adding channel with id: " + channelId + " to bridge with id: " + bridgeId);
-		arity.listenForOneTimeEvent(ChannelEnteredBridge.class, channelId, this::handleChannelEnteredBridge);
-		return Operation.<Void>retry(cb -> api.addChannel(bridgeId, channelId).setRole("member").execute(cb), this::mapExceptions)
+		arity.listenForOneTimeEvent(ChannelEnteredBridge.class, channelId, this::handleChannelEnteredBridge)
+				.withTimeout(arity.getEventWaitTimeout(), () -> failListener(enteredEventListeners, ChannelEnteredBridge.class, channelId));
+		return Operation.<Void>retry(arity, "Bridge.addChannel", cb -> api.addChannel(bridgeId, channelId).setRole("member").execute(cb), this::mapExceptions)
 				.thenCompose(v -> waitForAdded);
 	}
 
@@ -178,11 +191,24 @@ public class Bridge {
 		CompletableFuture<Void> waitForRemoved = confirmWasRemoved ?
 				waitForChannelLeft(channelId) : CompletableFuture.completedFuture(null);
 		logger.info("Removing channel with id: " + channelId + " to bridge with id: " + bridgeId);
-		arity.listenForOneTimeEvent(ChannelLeftBridge.class, channelId, this::handleChannelLeftBridge);
-		return Operation.<Void>retry(cb -> api.removeChannel(bridgeId, channelId).execute(cb), this::mapExceptions)
+		arity.listenForOneTimeEvent(ChannelLeftBridge.class, channelId, this::handleChannelLeftBridge)
+				.withTimeout(arity.getEventWaitTimeout(), () -> failListener(leftEventListeners, ChannelLeftBridge.class, channelId));
+		return Operation.<Void>retry(arity, "Bridge.removeChannel", cb -> api.removeChannel(bridgeId, channelId).execute(cb), this::mapExceptions)
 				.thenCompose(v -> waitForRemoved);
 	}
 
+	/**
+	 * Fail a channel entered or left listener, after the event it is waiting for did not arrive in time
+	 * @param listeners listeners to fail
+	 * @param type type of event the listener is waiting for
+	 * @param channelId ID of the channel the listener is waiting for
+	 */
+	private void failListener(Map<String, CompletableFuture<Void>> listeners, Class<?> type, String channelId) {
+		CompletableFuture<Void> event = listeners.remove(channelId);
+		if (Objects.nonNull(event))
+			event.completeExceptionally(new EventTimeoutException(type.getSimpleName(), channelId));
+	}
+
 	/**
 	 * Trigger "channel left bridge" event listeners
 	 * @param channelLeftBridge event for the channel
@@ -204,21 +230,21 @@ public class Bridge {
 	public CompletableFuture<Playback> playMedia(String fileToPlay) {
 		logger.info("Play media to bridge with id: " + bridgeId + ", and media is: " + fileToPlay);
 		String playbackId = UUID.randomUUID().toString();
-		return Operation.<Playback>retry(
+		CompletableFuture<Playback> future = new CompletableFuture<Playback>();
+		EventHandler<PlaybackFinished> handler = arity.listenForOneTimeEvent(PlaybackFinished.class, EventRouting.playbackKey(playbackId), pbf -> {
+			logger.debug("Playback " + playbackId + " finished");
+			future.complete(pbf.getPlayback());
+		}).linkedTo(EventRouting.bridgeKey(bridgeId)).withTimeout(arity.getEventWaitTimeout(), () -> future.completeExceptionally(
+				new EventTimeoutException(PlaybackFinished.class.getSimpleName(), EventRouting.playbackKey(playbackId))));
+		CompletableFuture<Playback> playback = Operation.<Playback>retry(arity, "Bridge.play",
 				cb -> api.play(bridgeId, "sound:" + fileToPlay).setLang("en").setPlaybackId(playbackId).execute(cb), this::mapExceptions)
-				.thenCompose(result -> {
-					CompletableFuture<Playback> future = new CompletableFuture<Playback>();
-					logger.debug("playing: " + fileToPlay);
-					arity.addEventHandler(PlaybackFinished.class, bridgeId, (pbf, se) -> {
-						if (!(pbf.getPlayback().getId().equals(playbackId)))
-							return;
-						logger.debug("PlaybackFinished id is the same as playback id.  ID is: " + playbackId);
-						future.complete(pbf.getPlayback());
-						se.unregister();
-					});
-					logger.debug("Future event of playbackFinished was added");
-					return future;
-				});
+				.whenComplete((result, t) -> {
+					if (Objects.isNull(t))
+						logger.debug("playing: " + fileToPlay);
+				})
+				.thenCompose(result -> future);
+		handler.ownedBy(playback); // also unregisters if the play failed or the caller cancelled the playback promise
+		return playback;
 	}
 
 	/**
@@ -233,7 +259,7 @@ public class Bridge {
 	 */
 	public CompletableFuture<Void> startMusicOnHold(String musicOnHoldClass) {
 		logger.debug("Try playing music on hold to bridge with id: " + bridgeId);
-		return Operation.<Void>retry(cb -> api.startMoh(bridgeId).setMohClass(musicOnHoldClass).execute(cb), this::mapExceptions);
+		return Operation.<Void>retry(arity, "Bridge.startMusicOnHold", cb -> api.startMoh(bridgeId).setMohClass(musicOnHoldClass).execute(cb), this::mapExceptions);
 	}
 
 	/**
@@ -243,7 +269,7 @@ public class Bridge {
 	 */
 	public CompletableFuture<Void> stopMusicOnHold() {
 		logger.debug("Try to stop playing music on hold to bridge with id: " + bridgeId);
-		return Operation.<Void>retry(cb -> api.stopMoh(bridgeId).execute(cb), this::mapExceptions);
+		return Operation.<Void>retry(arity, "Bridge.stopMusicOnHold", cb -> api.stopMoh(bridgeId).execute(cb), this::mapExceptions);
 	}
 
 	/**
@@ -275,18 +301,13 @@ public class Bridge {
 		RecordingData recordingData = new RecordingData(arity, recordingName);
 		recordings.put(recordingName, recordingData);
 		
-		arity.addEventHandler(RecordingFinished.class, bridgeId, (record, se) -> {
-			if (!Objects.equals(record.getRecording().getName(), recordingName)) {
-				logger.warn("Unexpected recording finished for bridge id " + bridgeId + " with name: " + 
-						record.getRecording().getName());
-				return;
-			}
+		EventHandler<RecordingFinished> finished = arity.listenForOneTimeEvent(RecordingFinished.class,
+				EventRouting.recordingKey(EventRouting.bridgeTarget(bridgeId), recordingName), record -> {
 			logger.info("Finished recording: " + recordingName);
 			recordingData.setLiveRecording(record.getRecording());
-			se.unregister();
-		});
+		}).linkedTo(EventRouting.bridgeKey(bridgeId));
 		
-		return Operation.<LiveRecording>retry(cb -> api.record(bridgeId, recordingName, realRecordFormat)
+		return Operation.<LiveRecording>retry(arity, "Bridge.record", cb -> api.record(bridgeId, recordingName, realRecordFormat)
 				.setMaxDurationSeconds(maxDurationSeconds).setMaxSilenceSeconds(maxSilenceSeconds)
 				.setIfExists(ifExists).setBeep(beep).setTerminateOn(terminateOn).execute(cb))
 				.thenApply(result -> {
@@ -295,6 +316,10 @@ public class Bridge {
 					recordingData.setLiveRecording(result);
 					return recordingData;
 				})
+				.whenComplete((result, t) -> {
+					if (Objects.nonNull(t)) // the recording did not start, so it will not finish
+						finished.unregister();
+				})
 				.exceptionally(Futures.on(RestException.class, e -> {
 					logger.error("Failed to record bridge " + this, e);
 					throw e;
@@ -305,15 +330,37 @@ public class Bridge {
 		RecordingData data = getRecodingByName(recordingName);
 		if (Objects.isNull(data))
 			return CompletableFuture.completedFuture(data);
-		return Operation.<Void>retry(cb -> arity.getAri().recordings().stop(recordingName).execute(cb))
+		return Operation.<Void>retry(arity, "Bridge.stopRecording", cb -> arity.getAri().recordings().stop(recordingName).execute(cb))
 				.thenApply(v -> data);
 	}
 
 	private CompletableFuture<ch.loway.oss.ari4java.generated.models.Bridge> readBridge() {
 		logger.info("Trying to get bridge with id: " + bridgeId + "...");
-		return Operation.<ch.loway.oss.ari4java.generated.models.Bridge>retry(cb -> api.get(bridgeId).execute(cb), this::mapExceptions);
+		// track members before reading, so no events that arrive while reading are missed
+		BridgeMembership tracked = arity.getBridgeMembership(bridgeId);
+		return Operation.<ch.loway.oss.ari4java.generated.models.Bridge>retry(arity, "Bridge.get", cb -> api.get(bridgeId).execute(cb), this::mapExceptions)
+				.whenComplete((b, t) -> {
+					if (Objects.isNull(t)) {
+						tracked.reset(b.getChannels());
+						membership = tracked;
+					} else // the bridge does not exist (anymore)
+						arity.discardBridgeMembership(bridgeId, tracked);
+				});
 	}
 
+	/**
+	 * Retrieve the locally tracked bridge members, if they can be used to answer membership queries
+	 * @return the bridge's membership set, or <code>null</code> if the bridge must be read from Asterisk
+	 */
+	private BridgeMembership syncedMembership() {
+		BridgeMembership tracked = membership;
+		return Objects.nonNull(tracked) && tracked.isSynced() ? tracked : null;
+	}
+
+	/**
+	 * Reload the bridge's details from Asterisk, and resynchronize the locally tracked bridge members
+	 * @return a promise for the bridge itself
+	 */
 	public CompletableFuture<Bridge> reload() {
 		return readBridge().thenApply(b ->{
 			name = b.getName();
@@ -386,20 +433,46 @@ public class Bridge {
 	}
 
 	/**
-	 * get how many channels are connected to this bridge
+	 * get how many channels are connected to this bridge.
+	 *
+	 * The bridge members are tracked locally from bridge events (see {@link BridgeMembership}), so this only
+	 * reads the bridge from Asterisk if it was not created or reloaded by this object, or if events may
+	 * have been lost while the event websocket reconnected.
 	 *
 	 * @return number of active channels in this bridge
 	 */
 	public CompletableFuture<Integer> getChannelCount() {
+		BridgeMembership tracked = syncedMembership();
+		if (Objects.nonNull(tracked))
+			return CompletableFuture.completedFuture(tracked.size());
 		return getChannels().thenApply(List::size);
 	}
 
 	/**
-	 * Retrieve the channel IDs for all channels on the bridge
+	 * Retrieve the channel IDs for all channels on the bridge.
+	 *
+	 * The bridge members are tracked locally from bridge events (see {@link BridgeMembership}), so this only
+	 * reads the bridge from Asterisk if it was not created or reloaded by this object, or if events may
+	 * have been lost while the event websocket reconnected.
 	 * @return list of channel IDs
 	 */
 	public CompletableFuture<List<String>> getChannels() {
-		return readBridge().thenApply(bridgeRes -> bridgeRes.getChannels());
+		BridgeMembership tracked = syncedMembership();
+		if (Objects.nonNull(tracked))
+			return CompletableFuture.completedFuture(tracked.getChannels());
+		return readBridge().thenApply(b -> new ArrayList<>(b.getChannels()));
+	}
+
+	/**
+	 * Check if a channel is in the bridge, according to the locally tracked bridge members
+	 * @param channelId ID of the channel to check
+	 * @return a promise that will resolve to whether the channel is in the bridge
+	 */
+	public CompletableFuture<Boolean> hasChannel(String channelId) {
+		BridgeMembership tracked = syncedMembership();
+		if (Objects.nonNull(tracked))
+			return CompletableFuture.completedFuture(tracked.contains(channelId));
+		return readBridge().thenApply(b -> b.getChannels().contains(channelId));
 	}
 
 	/**
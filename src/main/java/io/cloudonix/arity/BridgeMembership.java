@@ -0,0 +1,105 @@
+package io.cloudonix.arity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ch.loway.oss.ari4java.generated.models.BridgeDestroyed;
+import ch.loway.oss.ari4java.generated.models.ChannelEnteredBridge;
+import ch.loway.oss.ari4java.generated.models.ChannelLeftBridge;
+import ch.loway.oss.ari4java.generated.models.Message;
+
+/**
+ * Locally maintained set of the channels in a bridge.
+ *
+ * The set is updated from the ChannelEnteredBridge, ChannelLeftBridge and BridgeDestroyed events of the bridge, so
+ * membership queries don't need to ask Asterisk. Because it follows events, the set may lag shortly behind add and
+ * remove operations that were confirmed by ARI but whose events were not yet dispatched - use the operations'
+ * <code>confirmWasAdded</code> and <code>confirmWasRemoved</code> options if that matters.
+ *
+ * All the objects that access the same bridge share a single membership set, retrieved using
+ * {@link ARIty#getBridgeMembership(String)}, which is discarded when the bridge is destroyed. When the event websocket
+ * reconnects, the sets are resynchronized from Asterisk, as events may have been lost.
+ *
+ * @author odeda
+ */
+public class BridgeMembership {
+
+	private final Set<String> channels = ConcurrentHashMap.newKeySet();
+	private volatile boolean synced;
+
+	/**
+	 * Update the set from an event of the bridge
+	 * @param event a ChannelEnteredBridge, ChannelLeftBridge or BridgeDestroyed event
+	 */
+	void update(Message event) {
+		if (event instanceof ChannelEnteredBridge)
+			channels.add(((ChannelEnteredBridge) event).getChannel().getId());
+		else if (event instanceof ChannelLeftBridge)
+			channels.remove(((ChannelLeftBridge) event).getChannel().getId());
+		else if (event instanceof BridgeDestroyed)
+			channels.clear();
+	}
+
+	/**
+	 * Replace the tracked channels with the channels Asterisk reported for the bridge
+	 * @param current IDs of the channels currently in the bridge
+	 */
+	public void reset(Collection<String> current) {
+		channels.retainAll(current);
+		channels.addAll(current);
+		synced = true;
+	}
+
+	/**
+	 * Mark the set as synchronized with Asterisk, for a bridge that was just created and so has no channels
+	 */
+	public void created() {
+		channels.clear();
+		synced = true;
+	}
+
+	/**
+	 * Mark the set as no longer synchronized with Asterisk, because bridge events may have been lost, so membership
+	 * queries go to Asterisk until the set is reset
+	 */
+	void desync() {
+		synced = false;
+	}
+
+	/**
+	 * Check whether the set is synchronized with Asterisk, by {@link #reset(Collection)} or {@link #created()}, and
+	 * was not invalidated since by a reconnection of the event websocket
+	 * @return whether membership queries can be answered from the set
+	 */
+	public boolean isSynced() {
+		return synced;
+	}
+
+	/**
+	 * Check how many channels are in the bridge
+	 * @return number of channels
+	 */
+	public int size() {
+		return channels.size();
+	}
+
+	/**
+	 * Check whether a channel is in the bridge
+	 * @param channelId ID of the channel
+	 * @return whether the channel is in the bridge
+	 */
+	public boolean contains(String channelId) {
+		return channels.contains(channelId);
+	}
+
+	/**
+	 * Retrieve the channels in the bridge
+	 * @return a copy of the IDs of the channels in the bridge
+	 */
+	public List<String> getChannels() {
+		return new ArrayList<>(channels);
+	}
+}
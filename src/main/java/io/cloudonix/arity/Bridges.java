@@ -30,13 +30,13 @@ public class Bridges {
 	}
 	
 	public CompletableFuture<AsteriskBridge> create(String bridgeId, String bridgeName, String bridgeType) {
-		return Operation.<ch.loway.oss.ari4java.generated.models.Bridge>retry(cb -> api.create()
+		return Operation.<ch.loway.oss.ari4java.generated.models.Bridge>retry(arity, "Bridges.create", cb -> api.create()
 				.setBridgeId(bridgeId).setName(bridgeName).setType(bridgeType).execute(cb))
 				.thenApply(b -> new AsteriskBridge(arity, b));
 	}
 	
 	public CompletableFuture<AsteriskBridge> get(String bridgeId) {
-		return Operation.<ch.loway.oss.ari4java.generated.models.Bridge>retry(cb -> api.get(bridgeId).execute(cb))
+		return Operation.<ch.loway.oss.ari4java.generated.models.Bridge>retry(arity, "Bridges.get", cb -> api.get(bridgeId).execute(cb))
 				.thenApply(this::get);
 	}
 
@@ -517,7 +517,7 @@ public abstract class CallController {
 	 * otherwise
 	 */
 	public CompletableFuture<Boolean> isCallActive() {
-		return Operation.<Channel>retry(cb -> callState.getAri().channels().get(getChannelId()).execute(cb))
+		return getARIty().getChannel(getChannelId())
 				.thenApply(result -> {
 					logger.info(logmarker, "Call with id: " + result.getId() + " is still active");
 					return true;
@@ -1,16 +1,22 @@
 package io.cloudonix.arity;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +25,7 @@ import org.slf4j.MarkerFactory;
 
 import ch.loway.oss.ari4java.ARI;
 import ch.loway.oss.ari4java.generated.models.Channel;
+import ch.loway.oss.ari4java.generated.models.ChannelDestroyed;
 import ch.loway.oss.ari4java.generated.models.ChannelHangupRequest;
 import ch.loway.oss.ari4java.generated.models.ChannelStateChange;
 import ch.loway.oss.ari4java.generated.models.ChannelVarset;
@@ -26,7 +33,6 @@ import ch.loway.oss.ari4java.generated.models.Message;
 import ch.loway.oss.ari4java.generated.models.StasisEnd;
 import ch.loway.oss.ari4java.generated.models.StasisStart;
 import ch.loway.oss.ari4java.generated.models.Variable;
-import io.cloudonix.lib.Futures;
 
 /**
  * View of the current call state.
@@ -56,13 +62,28 @@ public class CallState {
 		private String stateName;
 		private boolean terminal;
 
+		/** state names as Asterisk reports them, and a case insensitive fallback for other spellings */
+		private static final Map<String, States> byName = new HashMap<>();
+		private static final Map<String, States> byNameIgnoreCase = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		static {
+			for (States s : values()) {
+				byName.put(s.stateName, s);
+				byNameIgnoreCase.put(s.stateName, s);
+			}
+		}
+
 		States(String stateName, boolean isTerminal) {
 			this.stateName = stateName;
 			this.terminal = isTerminal;
 		}
 
 		public static States find(String state) {
-			return Arrays.stream(values()).filter(s -> s.stateName.equalsIgnoreCase(state)).findFirst().orElse(Unknown);
+			if (Objects.isNull(state))
+				return Unknown;
+			States found = byName.get(state);
+			if (Objects.isNull(found))
+				found = byNameIgnoreCase.getOrDefault(state, Unknown);
+			return found;
 		}
 		
 		public boolean isTerminal() {
@@ -71,9 +92,15 @@ public class CallState {
 	}
 
 	private static Logger log = LoggerFactory.getLogger(CallState.class);
-	private Marker logmarker;
+	private static final int VARIABLE_BATCH_PARALLELISM = 4;
+	private static final TransitionListener[] NO_LISTENERS = {};
+	/** slot in the state listeners table for listeners that are interested in transitions to any state */
+	private static final int ANY_STATE = States.values().length;
+	/** Channel events that update the call state, delivered through a single subscription per call state */
+	private static final Class<?>[] STATE_EVENTS = { ChannelVarset.class, ChannelStateChange.class,
+			ChannelHangupRequest.class, StasisEnd.class, ChannelDestroyed.class };
+	private volatile Marker logmarker;
 
-	private ARI ari;
 	private String channelId;
 	private ARIty arity;
 	private Channel channel;
@@ -82,56 +109,107 @@ public class CallState {
 	private volatile boolean isActive = true;
 	private volatile boolean wasAnswered = false;
 
-	private Map<String, Object> metadata = new ConcurrentHashMap<>();
-	private Map<String, String> variables = new ConcurrentHashMap<>();
-	private ConcurrentHashMap<States, Queue<Runnable>> stateListeners = new ConcurrentHashMap<>();
-	private ConcurrentLinkedQueue<EventHandler<?>> eventListeners = new ConcurrentLinkedQueue<>();
+	// everything below is only allocated when first used, as most calls use few of these
+	private volatile Map<String, Object> metadata;
+	private volatile VariableCache variables;
+	private volatile Map<String, CompletableFuture<String>> pendingReads;
+	/** transition listeners indexed by target state ordinal, or ANY_STATE, each slot replaced on write */
+	private volatile TransitionListener[][] stateListeners;
+	private volatile CompletableFuture<Void> hangup;
+	private EventHandler<Message> subscription;
+	private volatile Queue<EventHandler<?>> eventListeners;
 
 	public CallState(StasisStart callStasisStart, ARIty arity) {
 		this(callStasisStart.getChannel(), arity);
 	}
 
 	public CallState(Channel chan, ARIty arity) {
-		this.ari = arity.getAri();
 		this.arity = arity;
 		this.channel = chan;
 		this.channelId = channel.getId();
-		logmarker = MarkerFactory.getDetachedMarker(channelId);
-		this.channelTechnology = channel.getName().split("/")[0];
 		lastState = States.find(channel.getState());
 		wasAnswered = lastState == States.Up;
-		registerEventHandler(ChannelVarset.class, varset -> {
-			log.info(logmarker, "Variable set: " + varset.getVariable() + " => " + varset.getValue());
-			variables.put(varset.getVariable(), varset.getValue());
-		});
-		registerEventHandler(ChannelStateChange.class, stateChange -> {
-			lastState = States.find(stateChange.getChannel().getState());
-			wasAnswered |= lastState == States.Up;
-			fireStateChangeListeners();
-		});
-		registerEventHandler(ChannelHangupRequest.class, hangup -> {
-			isActive = false;
-			lastState = States.Hangup;
-			fireStateChangeListeners();
-			// need also to unregister from channel events
-			eventListeners.forEach(EventHandler::unregister);
-		});
-		registerEventHandler(StasisEnd.class, end -> {
-			log.info(logmarker, "Stasis application ended");
-			isActive = false;
-			if (!lastState.isTerminal()) { // simulate hangup, if needed, on stasis end
-				lastState = States.Hangup;
-				fireStateChangeListeners();
-			}
-			eventListeners.forEach(EventHandler::unregister);
-		});
+		// the ChannelVarset handling only updates the variable cache, so repeated updates to the same variable can be
+		// skipped - and that is the only kind of event that is ever coalesced
+		subscription = arity.addEventHandler(Message.class, channelId, this::handleChannelEvent)
+				.onlyFor(STATE_EVENTS).coalescable();
+		arity.trackCallState(this);
 	}
 
 	/* Useless c'tor, used just so we can fake call controllers not connected to actual ARI service, for testing other things */
 	CallState() {}
 
+	private void handleChannelEvent(Message event, EventHandler<Message> se) {
+		try {
+			if (event instanceof ChannelVarset) {
+				ChannelVarset varset = (ChannelVarset) event;
+				log.info(logmarker(), "Variable set: {} => {}", varset.getVariable(), varset.getValue());
+				variables().put(varset.getVariable(), varset.getValue());
+			} else if (event instanceof ChannelStateChange) {
+				transition(States.find(((ChannelStateChange) event).getChannel().getState()));
+			} else if (event instanceof ChannelHangupRequest) {
+				if (!deactivate())
+					return;
+				transition(States.Hangup);
+				// need also to unregister from channel events
+				ended();
+			} else if (event instanceof StasisEnd || event instanceof ChannelDestroyed) {
+				// a destroyed channel may not have reported a hangup request or a stasis end, e.g. if these were lost
+				// while the websocket was disconnected
+				log.info(logmarker(), event instanceof StasisEnd ? "Stasis application ended" : "Channel destroyed");
+				if (!deactivate())
+					return;
+				if (!lastState.isTerminal()) // simulate hangup, if needed, on stasis end
+					transition(States.Hangup);
+				ended();
+			}
+		} catch (Throwable t) {
+			log.warn(logmarker(), "Error encountered handling " + event.getType(), t);
+		}
+	}
+
+	private Marker logmarker() {
+		Marker marker = logmarker;
+		if (Objects.isNull(marker))
+			logmarker = marker = MarkerFactory.getDetachedMarker(channelId);
+		return marker;
+	}
+
+	private VariableCache variables() {
+		VariableCache cache = variables;
+		if (Objects.nonNull(cache))
+			return cache;
+		synchronized (this) {
+			if (Objects.isNull(variables))
+				variables = Objects.nonNull(arity) ? arity.newVariableCache() : VariableCache.unbounded();
+			return variables;
+		}
+	}
+
+	private Map<String, Object> metadata() {
+		Map<String, Object> map = metadata;
+		if (Objects.nonNull(map))
+			return map;
+		synchronized (this) {
+			if (Objects.isNull(metadata))
+				metadata = new ConcurrentHashMap<>();
+			return metadata;
+		}
+	}
+
+	private Map<String, CompletableFuture<String>> pendingReads() {
+		Map<String, CompletableFuture<String>> map = pendingReads;
+		if (Objects.nonNull(map))
+			return map;
+		synchronized (this) {
+			if (Objects.isNull(pendingReads))
+				pendingReads = new ConcurrentHashMap<>();
+			return pendingReads;
+		}
+	}
+
 	public ARI getAri() {
-		return ari;
+		return Objects.nonNull(arity) ? arity.getAri() : null;
 	}
 
 	public String getChannelId() {
@@ -143,7 +221,8 @@ public class CallState {
 	}
 
 	public Channel getChannel() {
-		return channel;
+		Channel cached = Objects.nonNull(arity) ? arity.getCachedChannel(channelId) : null;
+		return Objects.nonNull(cached) ? cached : channel;
 	}
 
 	public States getStatus() {
@@ -151,7 +230,7 @@ public class CallState {
 	}
 
 	public Map<String, Object> getMetaData() {
-		return metadata;
+		return metadata();
 	}
 
 	/**
@@ -161,10 +240,10 @@ public class CallState {
 	 */
 	public void put(String key, Object value) {
 		if (Objects.isNull(value)) {
-			metadata.remove(key); // we aren't allowed to put null values in concurrenthashmap.
+			metadata().remove(key); // we aren't allowed to put null values in concurrenthashmap.
 			return;
 		}
-		metadata.put(key, value);
+		metadata().put(key, value);
 	}
 
 	/**
@@ -178,7 +257,8 @@ public class CallState {
 	 */
 	@SuppressWarnings("unchecked")
 	public <T> T get(String key) {
-		return (T) metadata.get(key);
+		Map<String, Object> map = metadata;
+		return Objects.nonNull(map) ? (T) map.get(key) : null;
 	}
 
 	/**
@@ -187,7 +267,8 @@ public class CallState {
 	 * @return Whether the field has been previously stored in the call state, even if its value was stored as <tt>null</tt>
 	 */
 	public boolean contains(String key) {
-		return metadata.containsKey(key);
+		Map<String, Object> map = metadata;
+		return Objects.nonNull(map) && map.containsKey(key);
 	}
 
 	/**
@@ -196,7 +277,7 @@ public class CallState {
 	 * @return variable value
 	 */
 	public String getVariable(String name) {
-		return variables.get(name);
+		return variables().get(name);
 	}
 
 	/**
@@ -207,17 +288,17 @@ public class CallState {
 	 * @param value variable value to pre-cache
 	 */
 	public void cacheVariable(String name, String value) {
-		variables.put(name, value);
+		variables().put(name, value);
 	}
 
 	/**
-	 * Retrieve all variables that have been already loaded from ARI (or otherwise)
+	 * Retrieve all variables that have been already loaded from ARI (or otherwise) and are still cached
 	 * Please note that SIP headers will be included in the list, such that their names look like
 	 * they have been read using the Get Variable ARI command, with the format {@code SIP_HEADER(name)}.
 	 * @return a set of variable entries.
 	 */
 	public Set<Entry<String, String>> allVariables() {
-		return Collections.unmodifiableSet(variables.entrySet());
+		return variables().entries();
 	}
 
 	class GetChannelVar extends Operation {
@@ -234,7 +315,7 @@ public class CallState {
 			return this.<Variable>retryOperation(cb -> channels().getChannelVar(getChannelId(), name).execute(cb))
 					.handle((var,e) -> {
 						if (Objects.nonNull(e))
-							log.info(logmarker, "getVar: " + e);
+							log.info(logmarker(), "getVar: " + e);
 						else
 							value = var.getValue();
 						return this;
@@ -259,15 +340,45 @@ public class CallState {
 	 * is not set.
 	 */
 	public CompletableFuture<String> readVariable(String name) {
-		if (variables.containsKey(name))
-			return CompletableFuture.completedFuture(variables.get(name));
-		return new GetChannelVar(channelId, arity, name).run()
-			.thenApply(GetChannelVar::getValue)
-			.thenApply(val -> { // cache the variable value locally for next time
-				if (Objects.nonNull(val))
-					variables.put(name, val); // the map can't store nulls
-				return val;
-			});
+		String cached = variables().get(name);
+		if (Objects.nonNull(cached))
+			return CompletableFuture.completedFuture(cached);
+		// concurrent reads of the same variable share a single request
+		CompletableFuture<String> pending = new CompletableFuture<>(), existing = pendingReads().putIfAbsent(name, pending);
+		if (Objects.nonNull(existing))
+			return existing.copy();
+		fetchVariable(name).whenComplete((val, t) -> {
+			variables().put(name, val); // cache the variable value locally for next time
+			pendingReads().remove(name, pending);
+			if (Objects.nonNull(t))
+				pending.completeExceptionally(t);
+			else
+				pending.complete(val);
+		});
+		return pending.copy();
+	}
+
+	/**
+	 * Read a channel variable from ARI, without using the local variable cache
+	 * @param name variable name to read
+	 * @return a promise for the variable value, that may resolve to <code>null</code> if the variable is not set
+	 */
+	CompletableFuture<String> fetchVariable(String name) {
+		return new GetChannelVar(channelId, arity, name).run().thenApply(GetChannelVar::getValue);
+	}
+
+	/**
+	 * Retrieve multiple Asterisk channel variables, using the local variable cache, or trying to retrieve variables
+	 * that are not cached from ARI - with at most {@value #VARIABLE_BATCH_PARALLELISM} concurrent requests
+	 * @param names variable names to read
+	 * @return a promise for the values of the variables that are set, by name
+	 */
+	public CompletableFuture<Map<String, String>> readVariables(Collection<String> names) {
+		Map<String, String> values = new ConcurrentHashMap<>();
+		return inParallel(names, name -> readVariable(name).thenAccept(val -> {
+			if (Objects.nonNull(val))
+				values.put(name, val);
+		})).thenApply(v -> values);
 	}
 
 	class SetChannelVar extends Operation {
@@ -301,8 +412,7 @@ public class CallState {
 	 * @return a promise that will resolve with the variable was set
 	 */
 	public CompletableFuture<Void> setVariable(String name, String value) {
-		if (Objects.nonNull(value)) // the map can't store nulls
-			variables.put(name, value);
+		variables().put(name, value);
 		return new SetChannelVar(channelId, arity, name, value).run().thenAccept(v -> {});
 	}
 	
@@ -312,8 +422,57 @@ public class CallState {
 	 * @return a promise that will resolve when all variables have been set
 	 */
 	public CompletableFuture<Void> setVariables(Map<String,String> variables) {
-		return variables.entrySet().stream().map(e -> setVariable(e.getKey(), e.getValue()))
-				.collect(Futures.resolvingCollector()).thenAccept(v -> {});
+		return inParallel(variables.entrySet(), e -> setVariable(e.getKey(), e.getValue()));
+	}
+
+	/**
+	 * Run an ARI operation for each item, with at most {@value #VARIABLE_BATCH_PARALLELISM} operations running at the
+	 * same time, so large batches don't flood Asterisk with concurrent requests
+	 * @param items items to run the operation for
+	 * @param operation operation to run for each item. Failures are ignored.
+	 * @return a promise that will resolve when the operation completed for all items
+	 */
+	private static <T> CompletableFuture<Void> inParallel(Collection<T> items, Function<T, CompletableFuture<?>> operation) {
+		Iterator<T> queue = new ArrayList<>(items).iterator();
+		CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(items.size(), VARIABLE_BATCH_PARALLELISM)];
+		for (int i = 0; i < workers.length; i++) {
+			CompletableFuture<Void> worker = new CompletableFuture<>();
+			runNext(queue, operation, worker);
+			workers[i] = worker;
+		}
+		return CompletableFuture.allOf(workers);
+	}
+
+	/**
+	 * Run the operation for the remaining items, one after the other. Operations that complete synchronously (such
+	 * as cached reads) are followed in a loop, and the worker only continues asynchronously when an operation is
+	 * still running, so large batches don't grow the stack.
+	 * @param queue items that the operation was not run for yet, shared by all workers
+	 * @param operation operation to run for each item
+	 * @param worker promise to resolve when no items remain
+	 */
+	private static <T> void runNext(Iterator<T> queue, Function<T, CompletableFuture<?>> operation,
+			CompletableFuture<Void> worker) {
+		while (true) {
+			T item;
+			synchronized (queue) {
+				if (!queue.hasNext()) {
+					worker.complete(null);
+					return;
+				}
+				item = queue.next();
+			}
+			CompletableFuture<?> result;
+			try {
+				result = operation.apply(item);
+			} catch (Throwable t) { // failures are ignored
+				continue;
+			}
+			if (!result.isDone()) {
+				result.whenComplete((v,t) -> runNext(queue, operation, worker));
+				return;
+			}
+		}
 	}
 
 	/**
@@ -321,7 +480,13 @@ public class CallState {
 	 * @return
 	 */
 	public String getChannelTechnology() {
-		return channelTechnology;
+		String technology = channelTechnology;
+		if (Objects.isNull(technology) && Objects.nonNull(channel)) { // parsed on first use, as few calls need it
+			String name = channel.getName();
+			int slash = name.indexOf('/');
+			channelTechnology = technology = slash < 0 ? name : name.substring(0, slash);
+		}
+		return technology;
 	}
 
 	/**
@@ -341,59 +506,235 @@ public class CallState {
 	}
 
 	/**
-	 * Retrieve a promise that will be fulfilled when the call is disconnected
-	 * @return
+	 * Retrieve a promise that will be fulfilled when the call is disconnected.
+	 *
+	 * All callers wait on the same shared promise, so waiting for hangup any number of times costs a single listener.
+	 * Each caller gets its own copy of that promise, which it may cancel or time out without affecting other callers.
+	 * @return a promise that resolves when the call is disconnected
 	 */
 	public CompletableFuture<Void> waitForHangup() {
-		CompletableFuture<Void>future = new CompletableFuture<Void>();
-		registerStateHandler(States.Hangup, ()->future.complete(null));
-		return future;
+		CompletableFuture<Void> future = hangup;
+		if (Objects.nonNull(future))
+			return future.copy();
+		synchronized (this) {
+			if (Objects.isNull(hangup)) {
+				hangup = future = new CompletableFuture<Void>();
+				onceTransition(null, States.Hangup, (from, to) -> hangup.complete(null));
+				if (!isActive) // already hung up, possibly before the listener was registered
+					future.complete(null);
+			}
+			return hangup.copy();
+		}
 	}
 
 	/**
-	 * Register for getting a callback when the specified state had been reached
+	 * Register for getting a callback whenever the specified state had been reached
 	 * @param state The state to listen for
-	 * @param handler the handler to run when the state has changed to the specified state
+	 * @param handler the handler to run when the state has changed to the specified state. Use
+	 *   {@link #onTransition(States, States, BiConsumer)} for a listener that can be removed.
 	 */
 	public void registerStateHandler(States state, Runnable handler) {
-		getStateListeners(state).add(handler);
+		onTransition(null, Objects.requireNonNull(state), (from, to) -> handler.run());
+	}
+
+	/**
+	 * Register for getting a callback whenever the call state changes from one state to another
+	 * @param from the state to listen for transitions from, or <code>null</code> for any state
+	 * @param to the state to listen for transitions to, or <code>null</code> for any state
+	 * @param handler the handler to run with the previous and the new state, when a matching transition occurs
+	 * @return a handle that can be used to remove the listener
+	 */
+	public TransitionListener onTransition(States from, States to, BiConsumer<States, States> handler) {
+		return addTransitionListener(new TransitionListener(from, to, handler, false));
+	}
+
+	/**
+	 * Register for getting a callback the first time the call state changes from one state to another, after which
+	 * the listener is removed
+	 * @param from the state to listen for transitions from, or <code>null</code> for any state
+	 * @param to the state to listen for transitions to, or <code>null</code> for any state
+	 * @param handler the handler to run with the previous and the new state, when a matching transition occurs
+	 * @return a handle that can be used to remove the listener before it runs
+	 */
+	public TransitionListener onceTransition(States from, States to, BiConsumer<States, States> handler) {
+		return addTransitionListener(new TransitionListener(from, to, handler, true));
+	}
+
+	/**
+	 * Handle for a listener registered on call state transitions
+	 */
+	public class TransitionListener {
+		private final States from;
+		private final States to;
+		private final BiConsumer<States, States> handler;
+		private final boolean once;
+		private volatile boolean registered = true;
+
+		private TransitionListener(States from, States to, BiConsumer<States, States> handler, boolean once) {
+			this.from = from;
+			this.to = to;
+			this.handler = Objects.requireNonNull(handler);
+			this.once = once;
+		}
+
+		/**
+		 * Remove the listener, so it will not be called for further transitions
+		 * @return whether the listener was still registered
+		 */
+		public boolean unregister() {
+			return removeTransitionListener(this);
+		}
+
+		/**
+		 * Tie the lifetime of this listener to an operation: the listener will be removed when the provided promise
+		 * completes, successfully or not
+		 * @param owner promise for the completion of the operation that owns this listener
+		 * @return itself for fluent calls
+		 */
+		public TransitionListener ownedBy(CompletableFuture<?> owner) {
+			owner.whenComplete((v,t) -> unregister());
+			return this;
+		}
+
+		/**
+		 * Check whether the listener is still registered
+		 * @return <code>false</code> if the listener was removed, or was a one-shot listener that already ran
+		 */
+		public boolean isRegistered() {
+			return registered;
+		}
+
+		private int slot() {
+			return Objects.isNull(to) ? ANY_STATE : to.ordinal();
+		}
+
+		private void fire(States previous, States current) {
+			if (Objects.nonNull(from) && from != previous)
+				return;
+			if (once && !unregister()) // run a one shot listener just once, even if transitions race
+				return;
+			try {
+				handler.accept(previous, current);
+			} catch (Throwable t) {
+				log.warn(logmarker(), "Error encountered running " + current + " listener " + handler, t);
+			}
+		}
+	}
+
+	private synchronized TransitionListener addTransitionListener(TransitionListener listener) {
+		TransitionListener[][] table = stateListeners;
+		if (Objects.isNull(table))
+			table = new TransitionListener[ANY_STATE + 1][];
+		int slot = listener.slot();
+		TransitionListener[] current = table[slot];
+		TransitionListener[] listeners = Objects.isNull(current) ? new TransitionListener[1] :
+			Arrays.copyOf(current, current.length + 1);
+		listeners[listeners.length - 1] = listener;
+		table[slot] = listeners;
+		stateListeners = table; // publish the new slot
+		return listener;
+	}
+
+	private synchronized boolean removeTransitionListener(TransitionListener listener) {
+		if (!listener.registered)
+			return false;
+		listener.registered = false;
+		TransitionListener[][] table = stateListeners;
+		int slot = listener.slot();
+		TransitionListener[] current = table[slot];
+		TransitionListener[] listeners = Arrays.stream(current).filter(l -> l != listener).toArray(TransitionListener[]::new);
+		table[slot] = listeners.length > 0 ? listeners : null; // release the memory of listeners that are done
+		stateListeners = table;
+		return true;
 	}
 
 	public <T extends Message> void registerEventHandler(Class<T> type, Consumer<T> eventHandler) {
-		eventListeners.add(arity.addEventHandler(type, channelId, (ev, se) -> {
+		EventHandler<T> handler = arity.addEventHandler(type, channelId, (ev, se) -> {
 			try {
 				eventHandler.accept(ev);
 			} catch (Throwable t) {
-				log.warn(logmarker, "Error encountered running " + type + " listener " + eventHandler, t);
+				log.warn(logmarker(), "Error encountered running " + type + " listener " + eventHandler, t);
 			}
-		}));
+		});
+		Queue<EventHandler<?>> listeners = eventListeners;
+		if (Objects.isNull(listeners))
+			synchronized (this) {
+				if (Objects.isNull(eventListeners))
+					eventListeners = new ConcurrentLinkedQueue<>();
+				listeners = eventListeners;
+			}
+		listeners.add(handler);
 	}
 
 	/**
-	 * Get a list of callback listeners that should be notified when the specific state has been reached,
-	 * for read or for write
-	 * @param state State for which state listeners are to be retrieved
-	 * @return collection of state listeners that is concurrently modifiable
+	 * Update the call state from a fresh snapshot of the channel, for example after events may have been lost while
+	 * the websocket was disconnected
+	 * @param current the channel as currently listed by Asterisk, or <code>null</code> if the channel no longer
+	 *   exists, in which case a hangup is simulated
 	 */
-	private Queue<Runnable> getStateListeners(States state) {
-		return stateListeners.computeIfAbsent(state, s -> new ConcurrentLinkedQueue<>());
+	void resynchronize(Channel current) {
+		if (Objects.isNull(current)) {
+			if (!deactivate())
+				return;
+			log.info(logmarker(), "Channel ended while disconnected from ARI");
+			if (!lastState.isTerminal())
+				transition(States.Hangup);
+			ended();
+			return;
+		}
+		channel = current;
+		States state = States.find(current.getState());
+		if (state != lastState)
+			transition(state);
 	}
 
 	/**
-	 * Execute state change listeners, with logging of failures
+	 * Mark the call as no longer active, exactly once, so the hangup is only handled by whichever of the hangup
+	 * request, the stasis end, the channel destruction or a resynchronization sees it first
+	 * @return whether the call was active until now
 	 */
-	private void fireStateChangeListeners() {
-		getStateListeners(lastState).forEach(run -> {
-			try {
-				run.run();
-			} catch (Throwable t) {
-				log.warn(logmarker, "Error encountered running " + lastState + " listener " + run, t);
-			}
-		});
+	private synchronized boolean deactivate() {
+		boolean wasActive = isActive;
+		isActive = false;
+		return wasActive;
+	}
+
+	private void ended() {
+		subscription.unregister();
+		Queue<EventHandler<?>> listeners = eventListeners;
+		if (Objects.nonNull(listeners))
+			listeners.forEach(EventHandler::unregister);
+		arity.untrackCallState(this);
+	}
+
+	/**
+	 * Get the callback listeners in a slot of the state listeners table
+	 * @param slot target state ordinal, or {@link #ANY_STATE}
+	 * @return a snapshot of the state listeners, that must not be modified
+	 */
+	private TransitionListener[] getStateListeners(int slot) {
+		TransitionListener[][] table = stateListeners;
+		TransitionListener[] listeners = Objects.nonNull(table) ? table[slot] : null;
+		return Objects.nonNull(listeners) ? listeners : NO_LISTENERS;
+	}
+
+	/**
+	 * Move to a new state and execute the matching transition listeners, with logging of failures
+	 * @param state the new state
+	 */
+	private void transition(States state) {
+		States previous = lastState;
+		lastState = state;
+		wasAnswered |= state == States.Up;
+		for (TransitionListener listener : getStateListeners(state.ordinal()))
+			listener.fire(previous, state);
+		for (TransitionListener listener : getStateListeners(ANY_STATE))
+			listener.fire(previous, state);
 	}
 
 	@Override
 	public String toString() {
-		return channelId + "[" + lastState + "]" + variables + "," + metadata;
+		// don't allocate the lazy variable cache and metadata just to log them
+		return channelId + "[" + lastState + "]" + Objects.toString(variables, "{}") + "," + Objects.toString(metadata, "{}");
 	}
 }
@@ -0,0 +1,112 @@
+package io.cloudonix.arity;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ch.loway.oss.ari4java.generated.models.Channel;
+import ch.loway.oss.ari4java.generated.models.ChannelDestroyed;
+import ch.loway.oss.ari4java.generated.models.ChannelStateChange;
+import ch.loway.oss.ari4java.generated.models.Message;
+import ch.loway.oss.ari4java.generated.models.StasisEnd;
+import ch.loway.oss.ari4java.generated.models.StasisStart;
+
+/**
+ * In-memory registry of the channels in the Stasis application, maintained from the event stream.
+ *
+ * A channel is added when it enters Stasis, its snapshot is replaced on each state change, and it is removed when it
+ * leaves Stasis or is destroyed. This allows ARIty to answer channel lookups locally, instead of asking Asterisk - a
+ * miss does not mean that the channel does not exist, only that it is not in the application, so callers should fall
+ * back to ARI.
+ *
+ * The registry does not keep the channels' variables: these are cached by the channel's first {@link CallState},
+ * under the limits of the configured {@link VariableCache}, and the registry only refers to that call state.
+ *
+ * @author odeda
+ */
+class ChannelRegistry {
+
+	private static class Entry {
+		volatile Channel channel;
+		volatile CallState callState;
+
+		Entry(Channel channel) {
+			this.channel = channel;
+		}
+	}
+
+	private final ConcurrentHashMap<String, Entry> channels = new ConcurrentHashMap<>();
+
+	/**
+	 * Update the registry from an ARI event, before it is dispatched to event handlers
+	 * @param event event received from Asterisk
+	 */
+	void update(Message event) {
+		if (event instanceof StasisStart) {
+			Channel channel = ((StasisStart) event).getChannel();
+			channels.put(channel.getId(), new Entry(channel));
+		} else if (event instanceof ChannelStateChange) {
+			Channel channel = ((ChannelStateChange) event).getChannel();
+			Entry entry = channels.get(channel.getId());
+			if (Objects.nonNull(entry))
+				entry.channel = channel;
+		} else if (event instanceof StasisEnd)
+			channels.remove(((StasisEnd) event).getChannel().getId());
+		else if (event instanceof ChannelDestroyed)
+			channels.remove(((ChannelDestroyed) event).getChannel().getId());
+	}
+
+	/**
+	 * Reconcile the registry with the channels currently active in Asterisk, removing channels that ended and
+	 * refreshing the snapshots of the others
+	 * @param active active channels by ID
+	 */
+	void reconcile(Map<String, Channel> active) {
+		channels.forEach((id, entry) -> {
+			Channel channel = active.get(id);
+			if (Objects.isNull(channel))
+				channels.remove(id, entry);
+			else
+				entry.channel = channel;
+		});
+	}
+
+	/**
+	 * Retrieve the latest snapshot of a channel
+	 * @param channelId ID of the channel
+	 * @return the channel snapshot, or <code>null</code> if the channel is not in the registry
+	 */
+	Channel get(String channelId) {
+		Entry entry = channels.get(channelId);
+		return Objects.nonNull(entry) ? entry.channel : null;
+	}
+
+	/**
+	 * Record the call state that monitors a channel, if it is the first call state created for the channel
+	 * @param callState a new call state
+	 */
+	void attach(CallState callState) {
+		Entry entry = channels.get(callState.getChannelId());
+		if (Objects.nonNull(entry) && Objects.isNull(entry.callState))
+			entry.callState = callState;
+	}
+
+	/**
+	 * Retrieve the first call state that was created for a channel, whose variable cache holds the variables
+	 * that were read, set or reported for the channel
+	 * @param channelId ID of the channel
+	 * @return the call state, or <code>null</code> if the channel is not in the registry or has no call state
+	 */
+	CallState getCallState(String channelId) {
+		Entry entry = channels.get(channelId);
+		return Objects.nonNull(entry) ? entry.callState : null;
+	}
+
+	/**
+	 * Check how many channels are in the registry
+	 * @return number of channels
+	 */
+	int size() {
+		return channels.size();
+	}
+}
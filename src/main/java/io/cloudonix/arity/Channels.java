@@ -15,7 +15,7 @@ public class Channels {
 	}
 
 	public CompletableFuture<AsteriskChannel> create(String endpoint, String channelId) {
-		return Operation.<Channel>retry(cb -> arity.getAri().channels().create(endpoint, arity.getAppName())
+		return Operation.<Channel>retry(arity, "Channels.create", cb -> arity.getAri().channels().create(endpoint, arity.getAppName())
 				.setAppArgs("").setChannelId(channelId).execute(cb))
 				.thenApply(c -> new AsteriskChannel(arity, c));
 	}
@@ -25,7 +25,7 @@ public class Channels {
 	}
 
 	public CompletableFuture<Void> hangup(String channelId, HangupReasons reason) {
-		return Operation.<Void>retry(cb -> arity.getAri().channels().hangup(channelId)
+		return Operation.<Void>retry(arity, "Channels.hangup", cb -> arity.getAri().channels().hangup(channelId)
 					.setReason(reason != null ? reason.toString() : null).execute(cb));
 	}
 
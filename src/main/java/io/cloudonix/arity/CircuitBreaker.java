@@ -0,0 +1,244 @@
+package io.cloudonix.arity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker for ARI operations.
+ *
+ * The breaker tracks the outcome of the last ARI requests and trips open when too many of them fail or are slow.
+ * While the breaker is open, new ARI operations fail immediately with a
+ * {@link io.cloudonix.arity.errors.CircuitOpenException} and new calls are rejected, instead of piling more requests
+ * on a struggling Asterisk server. After the open duration elapses the breaker lets a few probe requests through,
+ * and closes again if they all succeed.
+ *
+ * Install a circuit breaker using {@link ARIty#setCircuitBreaker(CircuitBreaker)}. Settings should be configured
+ * before the breaker is installed.
+ *
+ * @author odeda
+ */
+public class CircuitBreaker {
+	private final static Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+	public static enum State {
+		/** Operations are executed normally */
+		CLOSED,
+		/** Operations fail immediately */
+		OPEN,
+		/** A limited number of probe operations are executed to check if the breaker can close */
+		HALF_OPEN
+	}
+
+	private static final byte SUCCESS = 0, SLOW = 1, FAILURE = 2;
+
+	private int minimumRequests = 20;
+	private double failureRateThreshold = 0.5;
+	private double slowRateThreshold = 0.8;
+	private long slowRequestNanos = 5_000_000_000L;
+	private long openDurationNanos = 10_000_000_000L;
+	private int probes = 3;
+
+	private State state = State.CLOSED;
+	private byte[] window = new byte[100];
+	private int windowNext, windowCount, failures, slowRequests;
+	private long openedAt;
+	private int probesInFlight, probeSuccesses;
+
+	/**
+	 * Set how many of the last requests are used to compute the failure and slow request rates. The default is 100.
+	 * @param size number of requests
+	 * @return itself for fluent calls
+	 */
+	public synchronized CircuitBreaker setWindowSize(int size) {
+		window = new byte[size];
+		resetWindow();
+		return this;
+	}
+
+	/**
+	 * Set how many requests must be seen before the breaker may trip. The default is 20.
+	 * @param requests number of requests
+	 * @return itself for fluent calls
+	 */
+	public synchronized CircuitBreaker setMinimumRequests(int requests) {
+		minimumRequests = requests;
+		return this;
+	}
+
+	/**
+	 * Set the rate of failed requests that trips the breaker. The default is 0.5.
+	 * @param rate failure rate, between 0 and 1
+	 * @return itself for fluent calls
+	 */
+	public synchronized CircuitBreaker setFailureRateThreshold(double rate) {
+		failureRateThreshold = rate;
+		return this;
+	}
+
+	/**
+	 * Set the rate of slow requests that trips the breaker. The default is 0.8.
+	 * @param rate slow request rate, between 0 and 1
+	 * @return itself for fluent calls
+	 */
+	public synchronized CircuitBreaker setSlowRateThreshold(double rate) {
+		slowRateThreshold = rate;
+		return this;
+	}
+
+	/**
+	 * Set how long a request may take before it is considered slow. The default is 5 seconds.
+	 * @param millis request latency in milliseconds
+	 * @return itself for fluent calls
+	 */
+	public synchronized CircuitBreaker setSlowRequestThreshold(long millis) {
+		slowRequestNanos = millis * 1_000_000;
+		return this;
+	}
+
+	/**
+	 * Set how long the breaker stays open before probing Asterisk again. The default is 10 seconds.
+	 * @param millis open duration in milliseconds
+	 * @return itself for fluent calls
+	 */
+	public synchronized CircuitBreaker setOpenDuration(long millis) {
+		openDurationNanos = millis * 1_000_000;
+		return this;
+	}
+
+	/**
+	 * Set how many probe requests must succeed in the half open state for the breaker to close. The default is 3.
+	 * @param probes number of probe requests
+	 * @return itself for fluent calls
+	 */
+	public synchronized CircuitBreaker setProbes(int probes) {
+		this.probes = probes;
+		return this;
+	}
+
+	/**
+	 * Retrieve the current state of the breaker
+	 * @return breaker state
+	 */
+	public synchronized State getState() {
+		checkOpenDuration();
+		return state;
+	}
+
+	/**
+	 * Check whether a new request may be sent. If this method returns <code>true</code>, the caller must report
+	 * the outcome of the request using {@link #onSuccess(long)} or {@link #onFailure(long)}, or give up the request
+	 * using {@link #release()}.
+	 * @return whether the request may be sent
+	 */
+	synchronized boolean tryAcquire() {
+		checkOpenDuration();
+		switch (state) {
+		case CLOSED:
+			return true;
+		case HALF_OPEN:
+			if (probesInFlight + probeSuccesses >= probes)
+				return false;
+			probesInFlight++;
+			return true;
+		case OPEN:
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Report that a request acquired using {@link #tryAcquire()} was not sent
+	 */
+	synchronized void release() {
+		if (state == State.HALF_OPEN && probesInFlight > 0)
+			probesInFlight--;
+	}
+
+	/**
+	 * Report that a request received a response from Asterisk
+	 * @param latencyNanos how long the request took, in nanoseconds
+	 */
+	synchronized void onSuccess(long latencyNanos) {
+		boolean slow = latencyNanos >= slowRequestNanos;
+		switch (state) {
+		case HALF_OPEN:
+			probesInFlight = Math.max(0, probesInFlight - 1);
+			if (slow) {
+				trip("probe request was slow");
+				return;
+			}
+			if (++probeSuccesses >= probes) {
+				logger.info("Circuit breaker closed");
+				state = State.CLOSED;
+				resetWindow();
+			}
+			return;
+		case CLOSED:
+			record(slow ? SLOW : SUCCESS);
+			return;
+		default: // outcomes of requests sent before the breaker opened are ignored
+		}
+	}
+
+	/**
+	 * Report that a request failed without a meaningful response from Asterisk
+	 * @param latencyNanos how long the request took, in nanoseconds
+	 */
+	synchronized void onFailure(long latencyNanos) {
+		switch (state) {
+		case HALF_OPEN:
+			probesInFlight = Math.max(0, probesInFlight - 1);
+			trip("probe request failed");
+			return;
+		case CLOSED:
+			record(FAILURE);
+			return;
+		default:
+		}
+	}
+
+	private void record(byte outcome) {
+		if (windowCount == window.length)
+			forget(window[windowNext]);
+		else
+			windowCount++;
+		window[windowNext] = outcome;
+		windowNext = (windowNext + 1) % window.length;
+		if (outcome == FAILURE)
+			failures++;
+		else if (outcome == SLOW)
+			slowRequests++;
+		if (windowCount < minimumRequests)
+			return;
+		if (failures >= failureRateThreshold * windowCount)
+			trip("failure rate " + failures + "/" + windowCount);
+		else if (slowRequests >= slowRateThreshold * windowCount)
+			trip("slow request rate " + slowRequests + "/" + windowCount);
+	}
+
+	private void forget(byte outcome) {
+		if (outcome == FAILURE)
+			failures--;
+		else if (outcome == SLOW)
+			slowRequests--;
+	}
+
+	private void trip(String reason) {
+		logger.warn("Circuit breaker opened: {}", reason);
+		state = State.OPEN;
+		openedAt = System.nanoTime();
+		resetWindow();
+	}
+
+	private void checkOpenDuration() {
+		if (state != State.OPEN || System.nanoTime() - openedAt < openDurationNanos)
+			return;
+		logger.info("Circuit breaker half open, probing");
+		state = State.HALF_OPEN;
+		probesInFlight = probeSuccesses = 0;
+	}
+
+	private void resetWindow() {
+		windowNext = windowCount = failures = slowRequests = 0;
+	}
+}
@@ -35,6 +35,8 @@ public class Conference {
 	private boolean mohStopped = false;
 	private Runnable talkingStatedHandler = ()->{};
 	private Runnable talkingFinishedEvent = ()->{};
+	private EventHandler<ChannelTalkingStarted> talkingStartedListener;
+	private EventHandler<ChannelTalkingFinished> talkingFinishedListener;
 
 	/**
 	 * Create a new conference bridge for this call controller
@@ -58,8 +60,13 @@ public class Conference {
 		this.callController = callController;
 		this.bridge = bridge;
 		callController.talkDetection(1500, 750);
-		arity.addEventHandler(ChannelTalkingStarted.class, callController.getChannelId(),this::memberTalkingStartedEvent);
-		arity.addEventHandler(ChannelTalkingFinished.class, callController.getChannelId(),this::memberTalkingFinishedEvent);
+		talkingStartedListener = arity.addEventHandler(ChannelTalkingStarted.class, callController.getChannelId(),this::memberTalkingStartedEvent);
+		talkingFinishedListener = arity.addEventHandler(ChannelTalkingFinished.class, callController.getChannelId(),this::memberTalkingFinishedEvent);
+	}
+
+	private void stopTalkingListeners() {
+		talkingStartedListener.unregister();
+		talkingFinishedListener.unregister();
 	}
 
 	public void memberTalkingStartedEvent(ChannelTalkingStarted talkingStarted, EventHandler<ChannelTalkingStarted>se) {
@@ -86,6 +93,7 @@ public class Conference {
 	 */
 	public CompletableFuture<Void> closeConference() {
 		logger.info("Closing conference");
+		stopTalkingListeners();
 		return bridge.destroy();
 	}
 
@@ -177,6 +185,7 @@ public class Conference {
 	 * @param joinLeavePrompts 
 	 */
 	private void channelLeftConference(ChannelLeftBridge channelLeftBridge, boolean joinLeavePrompts) {
+		stopTalkingListeners();
 		handleChannelLeftConference.run();
 		logger.info("Channel " + channelLeftBridge.getChannel().getId() + " left conference: " + conferenceName);
 		annouceUser(joinLeavePrompts ? UserAnnounce.left : UserAnnounce.quiet).thenAccept(pb -> {
@@ -284,15 +284,20 @@ public class Dial extends CancelableOperations {
 			dialledCallState.set(cs);
 			active();
 		});
+		List<EventHandler<?>> handlers = new ArrayList<>();
 		if (Objects.nonNull(getChannelId()))
-			callerHangupListener = getArity().listenForOneTimeEvent(ChannelHangupRequest.class, getChannelId(), this::handleHangupCaller);
-		getArity().listenForOneTimeEvent(ChannelHangupRequest.class, endpointChannelId, this::handleHangupCallee);
-		channelStateChangedSe = getArity().addEventHandler(ChannelStateChange.class, endpointChannelId, this::handleChannelStateChanged);
-		getArity().addEventHandler(ch.loway.oss.ari4java.generated.models.Dial.class, endpointChannelId, this::handleDialEvent);
+			handlers.add(callerHangupListener = getArity().listenForOneTimeEvent(ChannelHangupRequest.class, getChannelId(), this::handleHangupCaller));
+		handlers.add(getArity().listenForOneTimeEvent(ChannelHangupRequest.class, endpointChannelId, this::handleHangupCallee));
+		handlers.add(channelStateChangedSe = getArity().addEventHandler(ChannelStateChange.class, endpointChannelId, this::handleChannelStateChanged));
+		handlers.add(getArity().addEventHandler(ch.loway.oss.ari4java.generated.models.Dial.class, endpointChannelId, this::handleDialEvent));
 
-		if (Objects.nonNull(earlyBridge))
-			return runEarlyBridingWorkflow();
+		CompletableFuture<Dial> result = Objects.nonNull(earlyBridge) ? runEarlyBridingWorkflow() : runOriginateWorkflow();
+		// the dial handlers are not needed after the dial ends, including if it failed to start
+		handlers.forEach(h -> h.ownedBy(result));
+		return result;
+	}
 
+	private CompletableFuture<Dial> runOriginateWorkflow() {
 		return this.<Channel>retryOperation(cb -> genOriginateChannelOperation().execute(cb))
 				.thenAccept(channel -> {
 					this.channel =  channel;
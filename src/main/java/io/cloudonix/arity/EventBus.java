@@ -0,0 +1,107 @@
+package io.cloudonix.arity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ch.loway.oss.ari4java.generated.models.Message;
+
+/**
+ * Dispatcher for event handlers that are not channel specific.
+ *
+ * The bus keeps a dispatch table from each concrete message class to the array of handlers that should receive it -
+ * handlers registered for the message type itself or for any of its super types, such as general {@link Message}
+ * listeners - so publishing an event is a single map lookup followed by an array iteration, regardless of how many
+ * handlers for other types are registered. The table is compiled lazily for each message class and is discarded
+ * whenever a handler is added or removed, which is much less frequent than publishing events.
+ *
+ * @author odeda
+ */
+class EventBus {
+
+	/**
+	 * Immutable state of the bus: all handlers in registration order, and the dispatch table compiled from them
+	 */
+	private static class Snapshot {
+		final EventHandler<?>[] handlers;
+		final ConcurrentHashMap<Class<?>, EventHandler<?>[]> table = new ConcurrentHashMap<>();
+
+		Snapshot(EventHandler<?>[] handlers) {
+			this.handlers = handlers;
+		}
+
+		EventHandler<?>[] compile(Class<?> messageClass) {
+			return Arrays.stream(handlers).filter(h -> h.getType().isAssignableFrom(messageClass))
+					.toArray(EventHandler<?>[]::new);
+		}
+	}
+
+	private volatile Snapshot snapshot = new Snapshot(new EventHandler<?>[0]);
+
+	/**
+	 * Add an event handler to the bus
+	 * @param handler handler to add
+	 */
+	synchronized void subscribe(EventHandler<?> handler) {
+		EventHandler<?>[] current = snapshot.handlers;
+		EventHandler<?>[] handlers = Arrays.copyOf(current, current.length + 1);
+		handlers[current.length] = handler;
+		snapshot = new Snapshot(handlers);
+	}
+
+	/**
+	 * Remove an event handler from the bus
+	 * @param handler handler to remove
+	 * @return whether the handler was found on the bus
+	 */
+	synchronized boolean unsubscribe(EventHandler<?> handler) {
+		EventHandler<?>[] current = snapshot.handlers;
+		EventHandler<?>[] handlers = Arrays.stream(current).filter(h -> h != handler).toArray(EventHandler<?>[]::new);
+		if (handlers.length == current.length)
+			return false;
+		snapshot = new Snapshot(handlers);
+		return true;
+	}
+
+	/**
+	 * Deliver an event to all the handlers registered for its type or any of its super types
+	 * @param event event to deliver
+	 * @param inline whether to run the handlers on the calling thread
+	 * @param received when the event was received, as reported by {@link System#nanoTime()}
+	 */
+	void publish(Message event, boolean inline, long received) {
+		Snapshot current = snapshot;
+		if (current.handlers.length == 0)
+			return;
+		for (EventHandler<?> handler : current.table.computeIfAbsent(event.getClass(), current::compile))
+			handler.accept(event, inline, received);
+	}
+
+	/**
+	 * Check whether any handler on the bus would receive messages of the specified class
+	 * @param messageClass concrete message class to check
+	 * @return whether there are handlers for that class
+	 */
+	boolean hasSubscribers(Class<?> messageClass) {
+		Snapshot current = snapshot;
+		return current.handlers.length > 0 && current.table.computeIfAbsent(messageClass, current::compile).length > 0;
+	}
+
+	/**
+	 * List the handlers on the bus
+	 * @return handlers in registration order
+	 */
+	List<EventHandler<?>> handlers() {
+		return Collections.unmodifiableList(new ArrayList<>(Arrays.asList(snapshot.handlers)));
+	}
+
+	/**
+	 * Check how many handlers are on the bus
+	 * @return number of handlers
+	 */
+	int size() {
+		return snapshot.handlers.length;
+	}
+}
@@ -1,11 +1,14 @@
 package io.cloudonix.arity;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import ch.loway.oss.ari4java.generated.models.Message;
+import io.cloudonix.arity.helpers.SharedTimer;
+import io.netty.util.Timeout;
 import io.netty.util.internal.shaded.org.jctools.queues.MessagePassingQueue.Consumer;
 
 /**
@@ -19,6 +22,9 @@ public class EventHandler<T extends Message> implements Consumer<T> {
 	private Class<T> clazz;
 	private ARIty arity;
 	private volatile boolean registered = true;
+	private volatile Timeout timeout;
+	private volatile boolean coalescable = false;
+	private volatile Class<?>[] accepted = null;
 	private final static Logger logger = LoggerFactory.getLogger(ARIty.class);
 
 	/**
@@ -44,20 +50,153 @@ public class EventHandler<T extends Message> implements Consumer<T> {
 		return channelId;
 	}
 
+	/**
+	 * Check the message type this event handler is listening to.
+	 * @return type of message to be delivered to this handler
+	 */
+	Class<T> getType() {
+		return clazz;
+	}
+
+	/**
+	 * Tie the lifetime of this handler to an operation: the handler will be unregistered when the provided
+	 * promise completes, successfully or not. Use this for handlers that are only relevant while an operation is
+	 * running, so they are not left behind if the operation fails or is cancelled before the handler unregisters itself.
+	 * @param owner promise for the completion of the operation that owns this handler
+	 * @return itself for fluent calls
+	 */
+	public EventHandler<T> ownedBy(CompletableFuture<?> owner) {
+		owner.whenComplete((v,t) -> unregister());
+		return this;
+	}
+
+	/**
+	 * Link this handler to a channel or a bridge, so that it is removed when the channel leaves Stasis or is destroyed,
+	 * or when the bridge is destroyed, together with the handlers registered on that channel or bridge. Use this for
+	 * handlers registered on the routing key of a playback or recording (see {@link EventRouting}), so they are not
+	 * left behind if the event they wait for is lost.
+	 * @param channelId ID of the channel, or the routing key of the bridge (see {@link EventRouting#bridgeKey(String)}),
+	 *   that the playback or recording is for
+	 * @return itself for fluent calls
+	 */
+	public EventHandler<T> linkedTo(String channelId) {
+		arity.linkEventHandler(this, channelId);
+		return this;
+	}
+
+	/**
+	 * Limit how long this handler waits for events: if the handler is still registered when the timeout expires,
+	 * it is unregistered and the provided callback is run on the ARIty executor service. Timeouts are tracked by
+	 * a shared hashed wheel timer (see {@link SharedTimer}), so they are cheap to set up and cancel.
+	 * @param millis timeout in milliseconds. If the timeout is not positive, the handler does not time out.
+	 * @param onTimeout callback to run when the timeout expires
+	 * @return itself for fluent calls
+	 */
+	public EventHandler<T> withTimeout(long millis, Runnable onTimeout) {
+		if (millis <= 0)
+			return this;
+		timeout = SharedTimer.schedule(() -> {
+			if (deactivate()) {
+				logger.debug("Timed out {}", this);
+				arity.removeEventHandler(this);
+				arity.dispatchTask(onTimeout);
+			}
+		}, millis);
+		return this;
+	}
+
+	/**
+	 * Mark this handler as only updating cached state from the events it receives, such that if several events
+	 * update the same state, delivering just the last one has the same effect as delivering all of them. This allows
+	 * the event ingestion stage to coalesce such events (see {@link ARIty#setIngestionBuffer(int)}).
+	 * @return itself for fluent calls
+	 */
+	EventHandler<T> coalescable() {
+		coalescable = true;
+		return this;
+	}
+
+	/**
+	 * Only deliver messages of the specified types to this handler, out of the messages of the type it listens to.
+	 * Messages of other types are discarded before they are dispatched to the executor service, so a single
+	 * handler can listen to several event types cheaply.
+	 * @param types message types to deliver
+	 * @return itself for fluent calls
+	 */
+	EventHandler<T> onlyFor(Class<?>... types) {
+		accepted = types;
+		return this;
+	}
+
+	boolean isCoalescable() {
+		return coalescable;
+	}
+
+	/**
+	 * Check whether this handler is still registered to receive events
+	 * @return <code>false</code> if the handler was unregistered
+	 */
+	public boolean isRegistered() {
+		return registered;
+	}
+
 	/**
 	 * Unregister from listening to this event
 	 */
 	public void unregister() {
-		registered = false;
+		deactivate();
+		Timeout t = timeout;
+		if (t != null)
+			t.cancel();
 		arity.removeEventHandler(this);
 	}
 
+	private synchronized boolean deactivate() {
+		boolean wasRegistered = registered;
+		registered = false;
+		return wasRegistered;
+	}
+
 	@Override
 	public void accept(Message m) {
-		if (!registered || !clazz.isInstance(m))
+		if (clazz.isInstance(m))
+			accept(m, false, System.nanoTime());
+	}
+
+	/**
+	 * Deliver a message to this handler. The caller is responsible for only delivering messages of the type the
+	 * handler is listening to, which ARIty's dispatch indexes guarantee without checking each handler.
+	 * @param m message to deliver
+	 * @param inline whether to run the handler on the calling thread, or dispatch it to the ARIty executor service
+	 * @param received when the message was received, as reported by {@link System#nanoTime()}
+	 */
+	void accept(Message m, boolean inline, long received) {
+		if (!registered || !isAccepted(m))
+			return;
+		logger.debug("Triggering {}", this);
+		if (!inline) {
+			arity.dispatchTask(() -> {
+				arity.getMetrics().eventDispatched(m.getType(), System.nanoTime() - received);
+				handler.accept(clazz.cast(m), this);
+			});
 			return;
-		logger.debug("Triggering " + this);
-		arity.dispatchTask(() -> handler.accept(clazz.cast(m), this));
+		}
+		try {
+			arity.getMetrics().eventDispatched(m.getType(), System.nanoTime() - received);
+			handler.accept(clazz.cast(m), this);
+		} catch (Throwable t) {
+			logger.warn("Error running " + this, t);
+		}
+	}
+
+	private boolean isAccepted(Message m) {
+		Class<?>[] types = accepted;
+		if (types == null)
+			return true;
+		for (Class<?> type : types)
+			if (type.isInstance(m))
+				return true;
+		return false;
 	}
 
 	@Override
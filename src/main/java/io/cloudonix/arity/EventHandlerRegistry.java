@@ -0,0 +1,210 @@
+package io.cloudonix.arity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ch.loway.oss.ari4java.generated.models.Message;
+
+/**
+ * Index of channel specific event handlers, keyed by channel ID and then by the message type each handler listens to.
+ *
+ * Dispatching an event only visits the handlers registered on the event's channel, for the types the event
+ * implements, so the cost of dispatch does not grow with the number of calls handled by the system.
+ *
+ * Handlers registered on the routing key of a playback or recording may be linked to the channel (or bridge) that
+ * the playback or recording is for, so that they are dropped together with that channel's handlers.
+ *
+ * @author odeda
+ */
+class EventHandlerRegistry {
+
+	/**
+	 * Cache of all the ARI message types that a concrete message implementation can be delivered as, so that
+	 * looking up handlers for an event is a fixed number of map lookups
+	 */
+	private static final ClassValue<Class<?>[]> messageTypes = new ClassValue<Class<?>[]>() {
+		@Override
+		protected Class<?>[] computeValue(Class<?> type) {
+			Set<Class<?>> types = new LinkedHashSet<>();
+			collectMessageTypes(type, types);
+			return types.toArray(new Class<?>[types.size()]);
+		}
+	};
+
+	private ConcurrentHashMap<String, ConcurrentHashMap<Class<?>, Queue<EventHandler<?>>>> channels = new ConcurrentHashMap<>();
+	private ConcurrentHashMap<String, Set<String>> linkedKeys = new ConcurrentHashMap<>();
+	private ConcurrentHashMap<String, String> keyOwners = new ConcurrentHashMap<>();
+	private AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * Add a channel specific event handler to the index
+	 * @param handler handler to add. The handler must have a channel ID
+	 */
+	void add(EventHandler<?> handler) {
+		channels.compute(handler.getChannelId(), (id, byType) -> {
+			if (byType == null)
+				byType = new ConcurrentHashMap<>();
+			byType.computeIfAbsent(handler.getType(), t -> new ConcurrentLinkedQueue<>()).add(handler);
+			size.incrementAndGet();
+			return byType;
+		});
+	}
+
+	/**
+	 * Link the routing key a handler is registered on to a channel, so that the handlers registered on the key are
+	 * dropped when the channel's handlers are dropped using {@link #removeChannel(String)}
+	 * @param handler handler whose routing key should be linked. Nothing is linked if the handler was already removed
+	 * @param channelId channel ID or bridge routing key to link to
+	 */
+	void link(EventHandler<?> handler, String channelId) {
+		if (handler.getChannelId().equals(channelId))
+			return;
+		channels.computeIfPresent(handler.getChannelId(), (key, byType) -> {
+			if (keyOwners.putIfAbsent(key, channelId) == null)
+				linkedKeys.computeIfAbsent(channelId, id -> ConcurrentHashMap.newKeySet()).add(key);
+			return byType;
+		});
+	}
+
+	/**
+	 * Remove an event handler from the index, dropping the channel's bucket if it is left empty
+	 * @param handler handler to remove
+	 * @return whether the handler was found in the index
+	 */
+	boolean remove(EventHandler<?> handler) {
+		boolean[] removed = { false };
+		channels.computeIfPresent(handler.getChannelId(), (id, byType) -> {
+			Queue<EventHandler<?>> handlers = byType.get(handler.getType());
+			if (handlers == null)
+				return byType;
+			if (removed[0] = handlers.remove(handler))
+				size.decrementAndGet();
+			if (handlers.isEmpty())
+				byType.remove(handler.getType());
+			if (!byType.isEmpty())
+				return byType;
+			unlink(id);
+			return null;
+		});
+		return removed[0];
+	}
+
+	/**
+	 * Deliver an event to all the handlers registered for it on the specified channel
+	 * @param event event to deliver
+	 * @param channelId channel the event was sent on
+	 * @param inline whether to run the handlers on the calling thread
+	 * @param received when the event was received, as reported by {@link System#nanoTime()}
+	 */
+	void dispatch(Message event, String channelId, boolean inline, long received) {
+		ConcurrentHashMap<Class<?>, Queue<EventHandler<?>>> byType = channels.get(channelId);
+		if (byType == null)
+			return;
+		for (Class<?> type : messageTypes.get(event.getClass())) {
+			Queue<EventHandler<?>> handlers = byType.get(type);
+			if (handlers != null)
+				for (EventHandler<?> handler : handlers)
+					handler.accept(event, inline, received);
+		}
+	}
+
+	/**
+	 * Check whether all the handlers that would receive a message on the specified channel only update cached state,
+	 * so that the message may be coalesced with a later message that overrides it
+	 * @param channelId channel the message is sent on
+	 * @param messageClass concrete message class
+	 * @return whether all the handlers for the message are coalescable
+	 */
+	boolean onlyCoalescable(String channelId, Class<?> messageClass) {
+		ConcurrentHashMap<Class<?>, Queue<EventHandler<?>>> byType = channels.get(channelId);
+		if (byType == null)
+			return true;
+		for (Class<?> type : messageTypes.get(messageClass)) {
+			Queue<EventHandler<?>> handlers = byType.get(type);
+			if (handlers != null)
+				for (EventHandler<?> handler : handlers)
+					if (!handler.isCoalescable())
+						return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Drop all the handlers registered on a channel
+	 * @param channelId channel whose handlers should be dropped
+	 * @return the handlers that were registered on the channel
+	 */
+	Collection<EventHandler<?>> removeChannel(String channelId) {
+		Collection<EventHandler<?>> out = new ArrayList<>();
+		drop(channelId, out);
+		unlink(channelId);
+		Set<String> keys = linkedKeys.remove(channelId);
+		if (keys != null)
+			for (String key : keys)
+				if (keyOwners.remove(key, channelId))
+					drop(key, out);
+		if (out.isEmpty())
+			return Collections.emptyList();
+		size.addAndGet(-out.size());
+		return out;
+	}
+
+	private void drop(String key, Collection<EventHandler<?>> out) {
+		ConcurrentHashMap<Class<?>, Queue<EventHandler<?>>> byType = channels.remove(key);
+		if (byType != null)
+			byType.values().forEach(out::addAll);
+	}
+
+	/**
+	 * Forget the link of a routing key whose handlers were all removed
+	 * @param key routing key that may be linked to a channel
+	 */
+	private void unlink(String key) {
+		String owner = keyOwners.remove(key);
+		if (owner != null)
+			linkedKeys.computeIfPresent(owner, (id, keys) -> {
+				keys.remove(key);
+				return keys.isEmpty() ? null : keys;
+			});
+	}
+
+	/**
+	 * Generate a snapshot of the registered handlers, for debugging handler leaks
+	 * @return the registered handlers, grouped by channel ID (or routing key) and then by message type
+	 */
+	Map<String, Map<String, List<EventHandler<?>>>> snapshot() {
+		Map<String, Map<String, List<EventHandler<?>>>> out = new TreeMap<>();
+		channels.forEach((id, byType) -> byType.forEach((type, handlers) -> {
+			if (!handlers.isEmpty())
+				out.computeIfAbsent(id, i -> new TreeMap<>()).put(type.getSimpleName(), new ArrayList<>(handlers));
+		}));
+		return out;
+	}
+
+	/**
+	 * Check how many handlers are registered
+	 * @return number of registered handlers
+	 */
+	int size() {
+		return size.get();
+	}
+
+	private static void collectMessageTypes(Class<?> type, Set<Class<?>> types) {
+		if (type == null || !Message.class.isAssignableFrom(type))
+			return;
+		types.add(type);
+		collectMessageTypes(type.getSuperclass(), types);
+		for (Class<?> iface : type.getInterfaces())
+			collectMessageTypes(iface, types);
+	}
+}
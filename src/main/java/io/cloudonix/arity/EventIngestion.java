@@ -0,0 +1,264 @@
+package io.cloudonix.arity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.loway.oss.ari4java.generated.models.ChannelCallerId;
+import ch.loway.oss.ari4java.generated.models.ChannelConnectedLine;
+import ch.loway.oss.ari4java.generated.models.ChannelDialplan;
+import ch.loway.oss.ari4java.generated.models.ChannelTalkingFinished;
+import ch.loway.oss.ari4java.generated.models.ChannelTalkingStarted;
+import ch.loway.oss.ari4java.generated.models.ChannelVarset;
+import ch.loway.oss.ari4java.generated.models.DeviceStateChanged;
+import ch.loway.oss.ari4java.generated.models.Message;
+import ch.loway.oss.ari4java.generated.models.StasisStart;
+
+/**
+ * Optional ingestion stage between the ARI websocket and ARIty's event dispatch.
+ *
+ * Events received from the websocket are put in a bounded ring buffer, which is drained by a single thread in
+ * batches. Each batch is split by channel (or by the bridge, playback or recording routing key, for events that have
+ * no channel) and each channel's events are dispatched together, in order. Within a channel's batch, runs of
+ * {@link ChannelVarset} events for the same variable are coalesced into the last one, if all the handlers that would
+ * receive them only update cached state (such as {@link CallState}'s variable cache) - so the result is the same,
+ * with less dispatch work during event storms.
+ *
+ * The ingestion buffer is bounded, and the {@link ARIty.OverloadPolicy} determines what happens when events
+ * arrive faster than they can be dispatched.
+ *
+ * @author odeda
+ */
+class EventIngestion {
+	private final static Logger logger = LoggerFactory.getLogger(EventIngestion.class);
+	private static final int MAX_BATCH = 256;
+
+	/**
+	 * An event in the ingestion buffer, with its routing information
+	 */
+	static class Ingested {
+		final Message event;
+		final long received;
+		String channelId;
+		String objectKey;
+
+		Ingested(Message event, long received) {
+			this.event = event;
+			this.received = received;
+		}
+	}
+
+	/**
+	 * Event types that may be dropped by the {@link ARIty.OverloadPolicy#DROP_LOW_PRIORITY} policy
+	 */
+	private static final Class<?>[] LOW_PRIORITY = { ChannelVarset.class, ChannelTalkingStarted.class,
+			ChannelTalkingFinished.class, ChannelDialplan.class, ChannelCallerId.class, ChannelConnectedLine.class,
+			DeviceStateChanged.class };
+
+	private static final ClassValue<Boolean> lowPriority = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			for (Class<?> lowPriorityType : LOW_PRIORITY)
+				if (lowPriorityType.isAssignableFrom(type))
+					return true;
+			return false;
+		}
+	};
+
+	/**
+	 * The ARIty services the ingestion stage dispatches events to and consults for its overload policy
+	 */
+	interface Dispatcher {
+		/** See {@link ARIty#dispatchBatch(String, List)} */
+		void dispatchBatch(String key, List<Ingested> events);
+
+		/** See {@link ARIty#isCoalescable(String, Class)} */
+		boolean isCoalescable(String channelId, Class<?> messageClass);
+
+		/** See {@link ARIty#isExpectedChannel(String)} */
+		boolean isExpectedChannel(String channelId);
+
+		/** See {@link ARIty#rejectCall(String, String)} */
+		void rejectCall(String channelId, String reason);
+	}
+
+	private final Dispatcher dispatcher;
+	private final BlockingQueue<Ingested> buffer;
+	private final ARIty.OverloadPolicy policy;
+	private final int shedThreshold;
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong shedCalls = new AtomicLong();
+	private final Thread drainer;
+
+	/**
+	 * Create and start a new ingestion stage
+	 * @param arity ARIty instance to dispatch events to
+	 * @param capacity size of the ingestion buffer
+	 * @param policy what to do when the buffer fills up
+	 */
+	EventIngestion(ARIty arity, int capacity, ARIty.OverloadPolicy policy) {
+		this(arity.getAppName(), new Dispatcher() {
+			@Override
+			public void dispatchBatch(String key, List<Ingested> events) {
+				arity.dispatchBatch(key, events);
+			}
+
+			@Override
+			public boolean isCoalescable(String channelId, Class<?> messageClass) {
+				return arity.isCoalescable(channelId, messageClass);
+			}
+
+			@Override
+			public boolean isExpectedChannel(String channelId) {
+				return arity.isExpectedChannel(channelId);
+			}
+
+			@Override
+			public void rejectCall(String channelId, String reason) {
+				arity.rejectCall(channelId, reason);
+			}
+		}, capacity, policy);
+	}
+
+	/**
+	 * Create and start a new ingestion stage
+	 * @param name name of the stage, used to name its thread
+	 * @param dispatcher where to dispatch events to
+	 * @param capacity size of the ingestion buffer
+	 * @param policy what to do when the buffer fills up
+	 */
+	EventIngestion(String name, Dispatcher dispatcher, int capacity, ARIty.OverloadPolicy policy) {
+		this.dispatcher = dispatcher;
+		this.policy = policy;
+		shedThreshold = Math.max(1, capacity * 3 / 4);
+		buffer = new ArrayBlockingQueue<>(capacity);
+		drainer = new Thread(this::drain, "arity-ingestion-" + name);
+		drainer.setDaemon(true);
+		drainer.start();
+	}
+
+	/**
+	 * Add an event to the ingestion buffer, applying the overload policy if the buffer is full: either waiting for
+	 * space to become available, rejecting a new call or dropping the event
+	 * @param event event received from the websocket
+	 * @param received when the event was received, as reported by {@link System#nanoTime()}
+	 * @throws InterruptedException if the calling thread was interrupted while waiting for space in the buffer
+	 */
+	void offer(Message event, long received) throws InterruptedException {
+		Ingested ev = new Ingested(event, received);
+		switch (policy) {
+		case SHED_CALLS:
+			if (event instanceof StasisStart && buffer.size() >= shedThreshold) {
+				String channelId = ((StasisStart) event).getChannel().getId();
+				if (!dispatcher.isExpectedChannel(channelId)) { // don't shed channels created by the application
+					shedCalls.incrementAndGet();
+					dispatcher.rejectCall(channelId, "event ingestion buffer is full");
+					return;
+				}
+			}
+			break;
+		case DROP_LOW_PRIORITY:
+			if (!lowPriority.get(event.getClass()))
+				break;
+			if (!buffer.offer(ev) && dropped.incrementAndGet() % 1000 == 1)
+				logger.warn("Event ingestion buffer is full, dropping low priority events ({} dropped so far)", dropped.get());
+			return;
+		case BLOCK:
+		default:
+		}
+		buffer.put(ev);
+	}
+
+	/**
+	 * Check how many events are waiting in the ingestion buffer
+	 * @return number of events waiting to be dispatched
+	 */
+	int getDepth() {
+		return buffer.size();
+	}
+
+	/**
+	 * Check how many low priority events were dropped
+	 * @return number of dropped events
+	 */
+	long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Check how many new calls were rejected
+	 * @return number of rejected calls
+	 */
+	long getShedCalls() {
+		return shedCalls.get();
+	}
+
+	/**
+	 * Stop draining the ingestion buffer. Events still in the buffer are discarded.
+	 */
+	void shutdown() {
+		drainer.interrupt();
+	}
+
+	private void drain() {
+		List<Ingested> batch = new ArrayList<>(MAX_BATCH);
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				batch.add(buffer.take());
+			} catch (InterruptedException e) {
+				break;
+			}
+			buffer.drainTo(batch, MAX_BATCH - 1);
+			try {
+				dispatch(batch);
+			} catch (Throwable t) {
+				logger.error("Unexpected error dispatching events", t);
+			}
+			batch.clear();
+		}
+		logger.debug("Event ingestion stopped");
+	}
+
+	private void dispatch(List<Ingested> batch) {
+		Map<String, List<Ingested>> byKey = new LinkedHashMap<>();
+		for (Ingested ev : batch) {
+			ev.channelId = EventRouting.getChannelId(ev.event);
+			ev.objectKey = EventRouting.getObjectKey(ev.event);
+			byKey.computeIfAbsent(ev.channelId != null ? ev.channelId : ev.objectKey, k -> new ArrayList<>()).add(ev);
+		}
+		byKey.forEach((key, events) -> dispatcher.dispatchBatch(key, coalesce(events)));
+	}
+
+	/**
+	 * Drop {@link ChannelVarset} events that are followed, in the same channel batch, by another update to the same
+	 * variable, if the handlers of these events only update cached state
+	 * @param events events of a single channel, in the order they were received
+	 * @return the events that should be dispatched
+	 */
+	private List<Ingested> coalesce(List<Ingested> events) {
+		if (events.size() < 2)
+			return events;
+		Map<String, Ingested> lastUpdate = new HashMap<>();
+		Ingested coalescable = null;
+		for (Ingested ev : events)
+			if (ev.event instanceof ChannelVarset && ev.channelId != null &&
+					lastUpdate.put(((ChannelVarset) ev.event).getVariable(), ev) != null)
+				coalescable = ev;
+		if (coalescable == null || !dispatcher.isCoalescable(coalescable.channelId, coalescable.event.getClass()))
+			return events;
+		List<Ingested> out = new ArrayList<>(events.size());
+		for (Ingested ev : events)
+			if (!(ev.event instanceof ChannelVarset) || lastUpdate.get(((ChannelVarset) ev.event).getVariable()) == ev)
+				out.add(ev);
+		logger.debug("Coalesced {} variable updates on {}", events.size() - out.size(), coalescable.channelId);
+		return out;
+	}
+}
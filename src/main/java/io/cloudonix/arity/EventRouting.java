@@ -0,0 +1,223 @@
+package io.cloudonix.arity;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.loway.oss.ari4java.generated.models.BridgeCreated;
+import ch.loway.oss.ari4java.generated.models.BridgeDestroyed;
+import ch.loway.oss.ari4java.generated.models.Channel;
+import ch.loway.oss.ari4java.generated.models.ChannelEnteredBridge;
+import ch.loway.oss.ari4java.generated.models.ChannelLeftBridge;
+import ch.loway.oss.ari4java.generated.models.DeviceStateChanged;
+import ch.loway.oss.ari4java.generated.models.LiveRecording;
+import ch.loway.oss.ari4java.generated.models.Message;
+import ch.loway.oss.ari4java.generated.models.PlaybackFinished;
+import ch.loway.oss.ari4java.generated.models.PlaybackStarted;
+import ch.loway.oss.ari4java.generated.models.RecordingFinished;
+import ch.loway.oss.ari4java.generated.models.RecordingStarted;
+
+/**
+ * Resolve the routing information of ARI events.
+ *
+ * Events are routed to handlers registered on the event's channel and, for events that refer to a bridge, a playback
+ * or a recording, also to handlers registered on the routing key of that object (see {@link #bridgeKey(String)},
+ * {@link #playbackKey(String)} and {@link #recordingKey(String, String)}). Handlers waiting for a specific playback or
+ * recording to finish should register on its routing key, so they are not offered the events of every other
+ * playback on the same channel or bridge.
+ *
+ * The accessors used to read the routing information of an event are resolved once for each concrete message class
+ * and cached, so that routing an event does not require reflection.
+ *
+ * @author odeda
+ */
+public class EventRouting {
+	private final static Logger logger = LoggerFactory.getLogger(EventRouting.class);
+	private static final MethodType GET_CHANNEL = MethodType.methodType(Channel.class);
+
+	private static final ClassValue<Function<Message, String>> channelIdExtractors = new ClassValue<Function<Message, String>>() {
+		@Override
+		protected Function<Message, String> computeValue(Class<?> type) {
+			return createChannelIdExtractor(type);
+		}
+	};
+
+	private static final ClassValue<Function<Message, String>> objectKeyExtractors = new ClassValue<Function<Message, String>>() {
+		@Override
+		protected Function<Message, String> computeValue(Class<?> type) {
+			return createObjectKeyExtractor(type);
+		}
+	};
+
+	private EventRouting() {}
+
+	/**
+	 * Generate the routing key for events that refer to a bridge: {@link ChannelEnteredBridge}, {@link ChannelLeftBridge}
+	 * and {@link BridgeDestroyed}
+	 * @param bridgeId ID of the bridge
+	 * @return a routing key that can be used instead of a channel ID when registering event handlers
+	 */
+	public static String bridgeKey(String bridgeId) {
+		return "bridge:" + bridgeId;
+	}
+
+	/**
+	 * Generate the target URI of a channel, as reported by playbacks and recordings of the channel
+	 * @param channelId ID of the channel
+	 * @return the channel's target URI
+	 */
+	public static String channelTarget(String channelId) {
+		return "channel:" + channelId;
+	}
+
+	/**
+	 * Generate the target URI of a bridge, as reported by playbacks and recordings of the bridge
+	 * @param bridgeId ID of the bridge
+	 * @return the bridge's target URI
+	 */
+	public static String bridgeTarget(String bridgeId) {
+		return "bridge:" + bridgeId;
+	}
+
+	/**
+	 * Resolve the routing key of the channel or bridge that a playback or recording target URI refers to, for
+	 * linking handlers of the playback or recording to it (see {@link EventHandler#linkedTo(String)})
+	 * @param targetUri target URI of a playback or recording
+	 * @return the channel ID for a channel target, the bridge's routing key for a bridge target
+	 */
+	public static String targetKey(String targetUri) {
+		if (targetUri.startsWith(bridgeTarget("")))
+			return bridgeKey(targetId(targetUri));
+		return targetId(targetUri);
+	}
+
+	/**
+	 * Generate the routing key for events of a specific playback: {@link PlaybackStarted} and {@link PlaybackFinished}
+	 * @param playbackId ID of the playback
+	 * @return a routing key that can be used instead of a channel ID when registering event handlers
+	 */
+	public static String playbackKey(String playbackId) {
+		return "playback:" + playbackId;
+	}
+
+	/**
+	 * Generate the routing key for events of a specific recording: {@link RecordingStarted} and {@link RecordingFinished}.
+	 * The key includes the recording's target, so recordings with the same name on different channels or bridges
+	 * don't receive each other's events.
+	 * @param targetUri the object being recorded, as reported in the recording's target URI (see
+	 *   {@link #channelTarget(String)} and {@link #bridgeTarget(String)})
+	 * @param recordingName name of the recording
+	 * @return a routing key that can be used instead of a channel ID when registering event handlers
+	 */
+	public static String recordingKey(String targetUri, String recordingName) {
+		return "recording:" + targetUri + "/" + recordingName;
+	}
+
+	/**
+	 * get the channel id of the event. if no channel id to this event, null is returned
+	 *
+	 * @param event event message that we are checking
+	 * @return the channel ID (or the playback or recording target ID) for the event
+	 */
+	static String getChannelId(Message event) {
+		return channelIdExtractors.get(event.getClass()).apply(event);
+	}
+
+	/**
+	 * get the routing key of the bridge, playback or recording the event refers to
+	 *
+	 * @param event event message that we are checking
+	 * @return the object routing key for the event, or <code>null</code> if the event does not refer to such an object
+	 */
+	static String getObjectKey(Message event) {
+		return objectKeyExtractors.get(event.getClass()).apply(event);
+	}
+
+	private static Function<Message, String> createObjectKeyExtractor(Class<?> type) {
+		if (PlaybackStarted.class.isAssignableFrom(type))
+			return e -> playbackKey(((PlaybackStarted) e).getPlayback().getId());
+		if (PlaybackFinished.class.isAssignableFrom(type))
+			return e -> playbackKey(((PlaybackFinished) e).getPlayback().getId());
+		if (RecordingStarted.class.isAssignableFrom(type))
+			return e -> recordingKey(((RecordingStarted) e).getRecording());
+		if (RecordingFinished.class.isAssignableFrom(type))
+			return e -> recordingKey(((RecordingFinished) e).getRecording());
+		if (ChannelEnteredBridge.class.isAssignableFrom(type))
+			return e -> bridgeKey(((ChannelEnteredBridge) e).getBridge().getId());
+		if (ChannelLeftBridge.class.isAssignableFrom(type))
+			return e -> bridgeKey(((ChannelLeftBridge) e).getBridge().getId());
+		if (BridgeDestroyed.class.isAssignableFrom(type))
+			return e -> bridgeKey(((BridgeDestroyed) e).getBridge().getId());
+		return e -> null;
+	}
+
+	private static Function<Message, String> createChannelIdExtractor(Class<?> type) {
+		if (DeviceStateChanged.class.isAssignableFrom(type) || BridgeCreated.class.isAssignableFrom(type) ||
+				BridgeDestroyed.class.isAssignableFrom(type))
+			return e -> null; // skip this, it never has a channel
+		if (ch.loway.oss.ari4java.generated.models.Dial.class.isAssignableFrom(type))
+			return e -> ((ch.loway.oss.ari4java.generated.models.Dial) e).getPeer().getId();
+		if (PlaybackStarted.class.isAssignableFrom(type))
+			return e -> targetId(((PlaybackStarted) e).getPlayback().getTarget_uri());
+		if (PlaybackFinished.class.isAssignableFrom(type))
+			return e -> targetId(((PlaybackFinished) e).getPlayback().getTarget_uri());
+		if (RecordingStarted.class.isAssignableFrom(type))
+			return e -> targetId(((RecordingStarted) e).getRecording().getTarget_uri());
+		if (RecordingFinished.class.isAssignableFrom(type))
+			return e -> targetId(((RecordingFinished) e).getRecording().getTarget_uri());
+
+		MethodHandle getChannel = findChannelAccessor(type);
+		if (Objects.isNull(getChannel)) {
+			logger.debug("Event type {} has no channel", type.getSimpleName());
+			return e -> null;
+		}
+		MethodHandle accessor = getChannel.asType(MethodType.methodType(Channel.class, Message.class));
+		return e -> {
+			Channel chan;
+			try {
+				chan = (Channel) accessor.invokeExact(e);
+			} catch (Throwable t) {
+				logger.warn("Can not get channel id for event " + e + ": " + t);
+				return null;
+			}
+			if (Objects.nonNull(chan))
+				return chan.getId();
+			logger.warn("Channel ID is not set for event " + e);
+			return null;
+		};
+	}
+
+	/**
+	 * Look up the <code>getChannel()</code> accessor of an event type, preferring the ARI model interface that
+	 * declares it so that non-public implementation classes can still be accessed.
+	 * @param type concrete type of the event
+	 * @return a method handle for the accessor, or <code>null</code> if the event type has no channel
+	 */
+	private static MethodHandle findChannelAccessor(Class<?> type) {
+		for (Class<?> iface : type.getInterfaces()) {
+			MethodHandle handle = findChannelAccessor(iface);
+			if (Objects.nonNull(handle))
+				return handle;
+		}
+		if (!Message.class.isAssignableFrom(type))
+			return null;
+		try {
+			return MethodHandles.publicLookup().findVirtual(type, "getChannel", GET_CHANNEL);
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			return null;
+		}
+	}
+
+	private static String recordingKey(LiveRecording recording) {
+		return recordingKey(recording.getTarget_uri(), recording.getName());
+	}
+
+	private static String targetId(String targetUri) {
+		return targetUri.substring(targetUri.indexOf(":") + 1);
+	}
+}
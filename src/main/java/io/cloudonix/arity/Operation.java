@@ -3,6 +3,9 @@ package io.cloudonix.arity;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -16,8 +19,10 @@ import ch.loway.oss.ari4java.generated.actions.ActionRecordings;
 import ch.loway.oss.ari4java.tools.AriCallback;
 import ch.loway.oss.ari4java.tools.RestException;
 import io.cloudonix.arity.errors.ChannelInInvalidState;
+import io.cloudonix.arity.errors.CircuitOpenException;
 import io.cloudonix.arity.errors.InvalidCallStateException;
 import io.cloudonix.arity.errors.dial.ChannelNotFoundException;
+import io.cloudonix.arity.helpers.ConcurrencyLimiter;
 import io.cloudonix.lib.Futures;
 
 /**
@@ -33,8 +38,28 @@ public abstract class Operation {
 		void accept(AriCallback<T> t) throws RestException;
 	}
 
-	private static final long RETRY_TIME = 1000;
-	private static final int RETRIES = 5;
+	/**
+	 * How much of the calling stack to capture when an ARI operation is started, so it can be reported if
+	 * the operation fails
+	 */
+	public static enum Diagnostics {
+		/**
+		 * Don't capture the calling stack. Failures will report the stack of the thread that handled the ARI
+		 * response. This is the default, as it doesn't cost anything for operations that succeed.
+		 */
+		NONE,
+		/**
+		 * Capture a limited number of frames of the calling stack (see {@link Operation#setDiagnostics(Diagnostics, int)})
+		 */
+		SHORT,
+		/**
+		 * Capture the full calling stack
+		 */
+		FULL
+	}
+
+	private static volatile Diagnostics diagnostics = Diagnostics.NONE;
+	private static volatile int diagnosticFrames = 10;
 	private String channelId;
 	private ARIty arity;
 
@@ -74,28 +99,29 @@ public abstract class Operation {
 	 * Convert an ari4java async operation (with onSuccess/onFailure callback) to a Java 8 {@link CompletableFuture}
 	 *
 	 * @param op a Lambda that takes a one-off {@link AriCallback} instance and uses it to run an ARI operation
+	 * @param caller stack of the code that started the operation, to be reported on failure, or <code>null</code>
+	 * @param executor executor where the promise will be completed
 	 * @return a promise for the completion of the ARI operation
 	 */
-	private static <V> CompletableFuture<V> toFuture(AriOperation<V> op) {
-		StackTraceElement[] caller = getCallingStack();
+	private static <V> CompletableFuture<V> toFuture(AriOperation<V> op, StackTraceElement[] caller, Executor executor) {
 		CompletableFuture<V> cf = new CompletableFuture<V>();
 		AriCallback<V> ariCallback = new AriCallback<V>() {
 
 			@Override
 			public void onSuccess(V result) {
-				CompletableFuture.runAsync(() -> cf.complete(result));
+				executor.execute(() -> cf.complete(result));
 			}
 
 			@Override
 			public void onFailure(RestException e) {
-				CompletableFuture.runAsync(() -> cf.completeExceptionally(rewrapError("ARI operation failed: " + e, caller, e)));
+				executor.execute(() -> cf.completeExceptionally(rewrapError("ARI operation failed: " + e, caller, e)));
 			}
 		};
 
 		try {
 			op.accept(ariCallback);
 		} catch (RestException e1) {
-			CompletableFuture.runAsync(() -> cf.completeExceptionally(e1));
+			executor.execute(() -> cf.completeExceptionally(e1));
 		}
 		return cf;
 	}
@@ -109,6 +135,43 @@ public abstract class Operation {
 		this.channelId = channelId;
 	}
 
+	/**
+	 * Set how much of the calling stack ARI operations capture, to be reported if they fail. This setting applies to
+	 * all operations started from now on, of all ARIty instances.
+	 * @param level diagnostics level
+	 */
+	public static void setDiagnostics(Diagnostics level) {
+		diagnostics = Objects.requireNonNull(level);
+	}
+
+	/**
+	 * Set how much of the calling stack ARI operations capture, to be reported if they fail. This setting applies to
+	 * all operations started from now on, of all ARIty instances.
+	 * @param level diagnostics level
+	 * @param frames maximum number of stack frames to capture with the {@link Diagnostics#SHORT} level
+	 */
+	public static void setDiagnostics(Diagnostics level, int frames) {
+		diagnosticFrames = frames;
+		setDiagnostics(level);
+	}
+
+	/**
+	 * Capture the stack of the code calling into the operations API, according to the current diagnostics level
+	 * @return the calling stack, or <code>null</code> if diagnostics are disabled
+	 */
+	private static StackTraceElement[] captureCallingStack() {
+		switch (diagnostics) {
+		case SHORT:
+			return StackWalker.getInstance().walk(frames -> frames.skip(2).limit(diagnosticFrames)
+					.map(StackWalker.StackFrame::toStackTraceElement).toArray(StackTraceElement[]::new));
+		case FULL:
+			return Stream.of(new Exception().getStackTrace()).skip(2).toArray(StackTraceElement[]::new);
+		case NONE:
+		default:
+			return null;
+		}
+	}
+
 	public static StackTraceElement getCallingFrame() {
 		return Stream.of(new Exception().fillInStackTrace().getStackTrace()).skip(2).findFirst().orElse(null);
 	}
@@ -122,7 +185,8 @@ public abstract class Operation {
 		while (cause instanceof CompletionException)
 			cause = cause.getCause();
 		CompletionException wrap = new CompletionException(message, cause);
-		wrap.setStackTrace(originalStack);
+		if (Objects.nonNull(originalStack))
+			wrap.setStackTrace(originalStack);
 		return wrap;
 	}
 
@@ -138,7 +202,7 @@ public abstract class Operation {
 	 *   current operation implementation determined an error to be fatal without retrying.
 	 */
 	public <V> CompletableFuture<V> retryOperation(AriOperation<V> op) {
-		return retryOperationImpl(op, RETRIES, this::tryIdentifyError);
+		return new Retry<>(arity, getClass(), null, op, this::tryIdentifyError, captureCallingStack()).attempt(0, 0);
 	}
 
 	/**
@@ -148,7 +212,30 @@ public abstract class Operation {
 	 * @return result of the operation, if successful, or a failure if the operation failed all retries
 	 */
 	public static <V> CompletableFuture<V> retry(AriOperation<V> op) {
-		return retryOperationImpl(op, RETRIES, v -> null);
+		return new Retry<>(null, null, null, op, v -> null, captureCallingStack()).attempt(0, 0);
+	}
+
+	/**
+	 * Retry to execute ARI operation few times, completing the result in the ARIty instance's completion executor
+	 *
+	 * @param arity ARIty instance the operation is executed for
+	 * @param op the ARI operation to execute
+	 * @return result of the operation, if successful, or a failure if the operation failed all retries
+	 */
+	public static <V> CompletableFuture<V> retry(ARIty arity, AriOperation<V> op) {
+		return new Retry<>(arity, null, null, op, v -> null, captureCallingStack()).attempt(0, 0);
+	}
+
+	/**
+	 * Retry to execute ARI operation few times, completing the result in the ARIty instance's completion executor
+	 *
+	 * @param arity ARIty instance the operation is executed for
+	 * @param name name of the operation, used to report its latency and failures to the instance's metrics
+	 * @param op the ARI operation to execute
+	 * @return result of the operation, if successful, or a failure if the operation failed all retries
+	 */
+	public static <V> CompletableFuture<V> retry(ARIty arity, String name, AriOperation<V> op) {
+		return new Retry<>(arity, null, name, op, v -> null, captureCallingStack()).attempt(0, 0);
 	}
 
 	/**
@@ -162,35 +249,174 @@ public abstract class Operation {
 	 * @return result of the operation, if successful, or a failure if the operation failed all retries
 	 */
 	public static <V> CompletableFuture<V> retry(AriOperation<V> op, Function<Throwable, Exception> exceptionMapper) {
-		return retryOperationImpl(op, RETRIES, exceptionMapper);
+		return new Retry<>(null, null, null, op, exceptionMapper, captureCallingStack()).attempt(0, 0);
 	}
 
 	/**
-	 * Retry to execute ARI operation few times - internal implementation
+	 * Retry to execute ARI operation few times, failing without retries if the exception is determined fatal
+	 * by the provided exception mapper, and completing the result in the ARIty instance's completion executor
+	 *
+	 * @param arity ARIty instance the operation is executed for
+	 * @param op the ARI operation to execute
+	 * @param exceptionMapper user provided logic to determine if an error should be retried. If the provided
+	 *   function returns {@code null}, then the operation will be retried, otherwise the returned exception will
+	 *   be propagated as the failure.
+	 * @return result of the operation, if successful, or a failure if the operation failed all retries
+	 */
+	public static <V> CompletableFuture<V> retry(ARIty arity, AriOperation<V> op, Function<Throwable, Exception> exceptionMapper) {
+		return new Retry<>(arity, null, null, op, exceptionMapper, captureCallingStack()).attempt(0, 0);
+	}
+
+	/**
+	 * Retry to execute ARI operation few times, failing without retries if the exception is determined fatal
+	 * by the provided exception mapper, and completing the result in the ARIty instance's completion executor
 	 *
+	 * @param arity ARIty instance the operation is executed for
+	 * @param name name of the operation, used to report its latency and failures to the instance's metrics
 	 * @param op the ARI operation to execute
-	 * @param triesLeft Number of tries left before determining the failure to be fatal
 	 * @param exceptionMapper user provided logic to determine if an error should be retried. If the provided
 	 *   function returns {@code null}, then the operation will be retried, otherwise the returned exception will
 	 *   be propagated as the failure.
-	 * @return result of the operation, if successful, or a failure if the operation failed all retries, or
-	 *   the provided exception mapper determined the exception to be fatal before retrying
+	 * @return result of the operation, if successful, or a failure if the operation failed all retries
 	 */
-	private static <V> CompletableFuture<V> retryOperationImpl(AriOperation<V> op, int triesLeft,
+	public static <V> CompletableFuture<V> retry(ARIty arity, String name, AriOperation<V> op,
 			Function<Throwable, Exception> exceptionMapper) {
-		StackTraceElement[] caller = getCallingStack();
-		return toFuture(op).handle((v,t) -> {
-			if (Objects.isNull(t))
-				return CompletableFuture.completedFuture(v);
-			Exception recognizedFailure = exceptionMapper.apply(unwrapCompletionError(t));
-			if (Objects.nonNull(recognizedFailure))
-				throw rewrapError("Unrecoverable ARI operation error: " + recognizedFailure, caller, recognizedFailure);
-			if (triesLeft <= 0 || !(t.getMessage().toLowerCase().contains("timeout")))
-				throw rewrapError("Unrecoverable ARI operation error: " + t, caller, t);
-			return Futures.delay(RETRY_TIME).apply(null)
-					.thenCompose(v1->retryOperationImpl(op, triesLeft - 1, exceptionMapper));
-		})
-		.thenCompose(x -> x);
+		return new Retry<>(arity, null, name, op, exceptionMapper, captureCallingStack()).attempt(0, 0);
+	}
+
+	/**
+	 * State of an ARI operation that is being retried according to a {@link RetryPolicy} - internal implementation
+	 */
+	private static class Retry<V> {
+		/**
+		 * Metrics names of operation types, derived from the class name of the operation implementation (including
+		 * the enclosing class of nested operations, e.g. <code>CallState.GetChannelVar</code>) or, for lambdas passed
+		 * to the static {@link Operation#retry(AriOperation)} methods without an operation name, the class that
+		 * created them
+		 */
+		private static final ClassValue<String> operationNames = new ClassValue<String>() {
+			@Override
+			protected String computeValue(Class<?> type) {
+				String name = type.getName();
+				name = name.substring(name.lastIndexOf('.') + 1);
+				int lambda = name.indexOf("$$");
+				if (lambda > 0)
+					name = name.substring(0, lambda);
+				return name.replaceAll("(\\$\\d+)+$", "").replace('$', '.'); // drop anonymous class numbers
+			}
+		};
+
+		private final ARIty arity;
+		private final String name;
+		private final ARItyMetrics metrics;
+		private final AriOperation<V> op;
+		private final Function<Throwable, Exception> exceptionMapper;
+		private final StackTraceElement[] caller;
+		private final RetryPolicy policy;
+		private final Executor executor;
+		private final long deadline;
+		private volatile long latency;
+
+		/**
+		 * Create the retry state for a new ARI operation
+		 * @param arity ARIty instance the operation is executed for, or <code>null</code> to use the default
+		 *   retry policy and complete the result in the common pool
+		 * @param type type of {@link Operation} executing the ARI operation, used to select the retry policy, or
+		 *   <code>null</code> to use the ARIty instance's default retry policy
+		 * @param name name of the operation reported to metrics, or <code>null</code> to derive it from the type
+		 * @param op the ARI operation to execute
+		 * @param exceptionMapper user provided logic to determine if an error should be retried. If the provided
+		 *   function returns {@code null}, then the operation will be retried, otherwise the returned exception will
+		 *   be propagated as the failure.
+		 * @param caller stack of the code that started the operation, to be reported on failure, or <code>null</code>
+		 */
+		Retry(ARIty arity, Class<?> type, String name, AriOperation<V> op, Function<Throwable, Exception> exceptionMapper,
+				StackTraceElement[] caller) {
+			this.arity = arity;
+			this.op = op;
+			this.exceptionMapper = exceptionMapper;
+			this.caller = caller;
+			this.name = Objects.nonNull(name) ? name : operationNames.get(Objects.nonNull(type) ? type : op.getClass());
+			metrics = Objects.nonNull(arity) ? arity.getMetrics() : ARItyMetrics.NOOP;
+			policy = Objects.nonNull(arity) ? arity.getRetryPolicy(type) : RetryPolicy.DEFAULT;
+			executor = Objects.nonNull(arity) ? arity.getCompletionExecutor() : ForkJoinPool.commonPool();
+			deadline = policy.getDeadline() > 0 ? System.currentTimeMillis() + policy.getDeadline() : 0;
+		}
+
+		/**
+		 * Execute the ARI operation, retrying on failure as long as the retry policy allows
+		 * @param retry number of retries made so far
+		 * @param previousDelay delay used before the last retry, in milliseconds
+		 * @return result of the operation, if successful, or a failure if the operation failed all retries, or
+		 *   the provided exception mapper determined the exception to be fatal before retrying
+		 */
+		CompletableFuture<V> attempt(int retry, long previousDelay) {
+			CircuitBreaker breaker = Objects.nonNull(arity) ? arity.getCircuitBreaker() : null;
+			return send(breaker).handle((v,t) -> {
+				if (Objects.isNull(t)) {
+					if (Objects.nonNull(breaker))
+						breaker.onSuccess(latency);
+					return CompletableFuture.completedFuture(v);
+				}
+				Throwable cause = unwrapCompletionError(t);
+				if (cause instanceof CircuitOpenException || cause instanceof RejectedExecutionException)
+					throw fail("ARI operation rejected: " + cause, cause);
+				Exception recognizedFailure = exceptionMapper.apply(cause);
+				if (Objects.nonNull(breaker)) { // recognized failures are valid responses from a working server
+					if (Objects.nonNull(recognizedFailure))
+						breaker.onSuccess(latency);
+					else
+						breaker.onFailure(latency);
+				}
+				if (Objects.nonNull(recognizedFailure))
+					throw fail("Unrecoverable ARI operation error: " + recognizedFailure, recognizedFailure);
+				if (retry >= policy.getMaxRetries() || !policy.isRetryable(t))
+					throw fail("Unrecoverable ARI operation error: " + t, t);
+				long delay = policy.nextDelay(retry + 1, previousDelay);
+				if (deadline > 0 && System.currentTimeMillis() + delay > deadline)
+					throw fail("ARI operation deadline expired: " + t, t);
+				if (Objects.nonNull(arity) && !arity.tryAcquireRetry())
+					throw fail("ARI operation retry budget exhausted: " + t, t);
+				metrics.operationRetried(name, cause);
+				return Futures.delay(delay).apply(null)
+						.thenCompose(v1 -> attempt(retry + 1, delay));
+			})
+			.thenCompose(x -> x);
+		}
+
+		/**
+		 * Send the ARI request, if allowed by the circuit breaker, once the request limiter allows it
+		 * @param breaker circuit breaker protecting the request, or <code>null</code>
+		 * @return a promise for the completion of the ARI request
+		 */
+		private CompletableFuture<V> send(CircuitBreaker breaker) {
+			if (Objects.nonNull(breaker) && !breaker.tryAcquire())
+				return CompletableFuture.failedFuture(new CircuitOpenException());
+			ConcurrencyLimiter limiter = Objects.nonNull(arity) ? arity.getRequestLimiter() : null;
+			if (Objects.isNull(limiter))
+				return timed();
+			CompletableFuture<V> res = limiter.submit(this::timed);
+			if (Objects.nonNull(breaker))
+				res.whenComplete((v,t) -> {
+					if (unwrapCompletionError(t) instanceof RejectedExecutionException)
+						breaker.release();
+				});
+			return res;
+		}
+
+		private CompletableFuture<V> timed() {
+			long start = System.nanoTime();
+			return toFuture(op, caller, executor).whenComplete((v,t) -> {
+				latency = System.nanoTime() - start;
+				metrics.operationCompleted(name, latency, Objects.nonNull(t) ? unwrapCompletionError(t) : null);
+			});
+		}
+
+		private CompletionException fail(String message, Throwable cause) {
+			CompletionException error = rewrapError(message, caller, cause);
+			metrics.operationFailed(name, error.getCause());
+			return error;
+		}
 	}
 
 	protected ActionChannels channels() {
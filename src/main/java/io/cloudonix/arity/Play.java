@@ -14,6 +14,7 @@ import org.slf4j.LoggerFactory;
 import ch.loway.oss.ari4java.generated.models.Channel;
 import ch.loway.oss.ari4java.generated.models.Playback;
 import ch.loway.oss.ari4java.generated.models.PlaybackFinished;
+import io.cloudonix.arity.errors.EventTimeoutException;
 import io.cloudonix.arity.errors.PlaybackException;
 
 /**
@@ -97,17 +98,20 @@ public class Play extends CancelableOperations {
 		if (cancelled()) // if we're already cancelled, make any additional iteration a no-op
 			return CompletableFuture.completedFuture(null);
 
-		currentPlaybackId = UUID.randomUUID().toString();
-		CompletableFuture<Play> playbackFinished = new CompletableFuture<>();
-		getArity().addEventHandler(PlaybackFinished.class, getChannelId(), (finished, se) -> {
-			String finishId = finished.getPlayback().getId();
-			if (!Objects.equals(finishId, currentPlaybackId))
-				return;
-			currentPlaybackId = null;
-			logger.info(finishId + "|Finished playback: {}", finished.getPlayback().getState());
+		String playbackId = currentPlaybackId = UUID.randomUUID().toString();
+		String playbackKey = EventRouting.playbackKey(playbackId);
+		CompletableFuture<PlaybackFinished> finishedEvent = new CompletableFuture<>();
+		getArity().listenForOneTimeEvent(PlaybackFinished.class, playbackKey, finishedEvent::complete)
+				.linkedTo(playBridge != null ? EventRouting.bridgeKey(playBridge.getId()) : getChannelId())
+				.withTimeout(getArity().getEventWaitTimeout(), () -> finishedEvent.completeExceptionally(
+						new EventTimeoutException(PlaybackFinished.class.getSimpleName(), playbackKey)))
+				.ownedBy(finishedEvent);
+		CompletableFuture<Play> playbackFinished = finishedEvent.thenApply(finished -> {
+			if (Objects.equals(playbackId, currentPlaybackId))
+				currentPlaybackId = null;
+			logger.info(playbackId + "|Finished playback: {}", finished.getPlayback().getState());
 			playback.set(null);
-			playbackFinished.complete(this);
-			se.unregister();
+			return this;
 		});
 		
 		return executePlayOperation(path)
@@ -118,6 +122,7 @@ public class Play extends CancelableOperations {
 		})
 		.exceptionally(e -> {
 			logger.warn("Failed in playing playback", e);
+			finishedEvent.cancel(false); // stop waiting for the playback to finish, if it failed to start
 			throw new CompletionException(new PlaybackException(path, e));
 		});
 	}
@@ -9,18 +9,32 @@ import org.slf4j.LoggerFactory;
 
 import ch.loway.oss.ari4java.generated.models.ChannelDtmfReceived;
 import io.cloudonix.arity.CallState.States;
+import io.cloudonix.arity.helpers.DtmfPatterns;
+import io.cloudonix.arity.helpers.SharedTimer;
+import io.netty.util.Timeout;
 
 /**
- * Register for receiving DTMF sequences
+ * Register for receiving DTMF sequences.
+ *
+ * Collection stops when a terminating key is pressed, when the maximum input length is reached, when the input
+ * completely matches (or can no longer match) the patterns set with {@link #setPattern(DtmfPatterns)}, or when one of
+ * the first-digit or inter-digit timeouts expires.
  * @author naamag
  * @author odeda
  */
 public class ReceiveDTMF extends CancelableOperations {
-	private String userInput = "";
+	private final StringBuilder userInput = new StringBuilder();
 	private final static Logger logger = LoggerFactory.getLogger(ReceiveDTMF.class);
 	private String terminatingKey = "";
 	private int inputLength = -1;
+	private DtmfPatterns pattern;
+	private long firstDigitTimeout = 0;
+	private long interDigitTimeout = 0;
+	private Timeout timer;
 	private boolean termKeyWasPressed = false;
+	private boolean matched = false;
+	private boolean timedOut = false;
+	private boolean done = false;
 	private CompletableFuture<ReceiveDTMF> compFuture = new CompletableFuture<>();
 	private EventHandler<ChannelDtmfReceived> handler;
 	private Consumer<String> applicationDTMFHandler = v -> {};
@@ -28,26 +42,26 @@ public class ReceiveDTMF extends CancelableOperations {
 	/**
 	 * Create a new DTMF receiver with both a terminating key list and a maximum input length
 	 * @param callController call instance
-	 * @param termKeys DTMF signals that will terminate the DTMF receiver (cause the {@link #run()} completion to resolve).
-	 * 	Specify the empty string for no automatic termination.
+	 * @param termKeys DTMF signals that will terminate the DTMF receiver (cause the {@link #run()} completion to resolve),
+	 * 	any of which terminates the receiver. Specify the empty string (or <code>null</code>) for no automatic termination.
 	 * @param length the maximum number of DTMF signals that can be received, after which the DTMF receiver will terminate.
 	 * 	Specify -1 for no maximum.
 	 */
 	public ReceiveDTMF(CallController callController, String termKeys, int length) {
 		this(callController);
-		this.terminatingKey = Objects.requireNonNull(termKeys);
+		this.terminatingKey = Objects.toString(termKeys, "");
 		this.inputLength = length;
 	}
 	
 	/**
 	 * Create a new DTMF receiver with just a terminating key list and no maximum length
 	 * @param callController call instance
-	 * @param termKeys DTMF signals that will terminate the DTMF receiver (cause the {@link #run()} completion to resolve).
-	 * 	Specify the empty string for no automatic termination.
+	 * @param termKeys DTMF signals that will terminate the DTMF receiver (cause the {@link #run()} completion to resolve),
+	 * 	any of which terminates the receiver. Specify the empty string (or <code>null</code>) for no automatic termination.
 	 */
 	public ReceiveDTMF(CallController callController, String termKeys) {
 		this(callController);
-		this.terminatingKey = termKeys;
+		this.terminatingKey = Objects.toString(termKeys, "");
 	}
 	
 	/**
@@ -67,15 +81,24 @@ public class ReceiveDTMF extends CancelableOperations {
 	 */
 	public ReceiveDTMF(CallController callController) {
 		super(callController.getChannelId(), callController.getARIty());
-		callController.getCallState().registerStateHandler(States.Hangup, this::cancel);
+		// stop on hangup, but don't keep the listener after the DTMF receiver is done
+		callController.getCallState().onceTransition(null, States.Hangup, (from, to) -> cancel()).ownedBy(compFuture);
 	}
 
 	/**
 	 * Start gathering DTMF input
-	 * @return a promise that will complete when stop conditions (terminating key or max length) have been reached, or the operation was cancelled
+	 * @return a promise that will complete when stop conditions (terminating key, max length, pattern match or timeout)
+	 *   have been reached, or the operation was cancelled
 	 */
 	public CompletableFuture<ReceiveDTMF> run() {
+		if (Objects.nonNull(pattern) && interDigitTimeout <= 0 && terminatingKey.isEmpty())
+			logger.warn("DTMF pattern set without an inter-digit timeout or terminating keys - input that matches "
+					+ "a pattern but may still be extended will be collected until the maximum length or hangup");
 		this.handler = getArity().addEventHandler(ChannelDtmfReceived.class, getChannelId(), this::handleDTMF);
+		synchronized (this) {
+			if (userInput.length() == 0)
+				startTimer(firstDigitTimeout);
+		}
 		return compFuture;
 	}
 
@@ -86,28 +109,131 @@ public class ReceiveDTMF extends CancelableOperations {
 	 * @param se the saved event handler for dtmf
 	 */
 	public void handleDTMF(ChannelDtmfReceived dtmf, EventHandler<ChannelDtmfReceived>se) {
-		applicationDTMFHandler.accept(dtmf.getDigit());
-		if (dtmf.getDigit().equals(terminatingKey)) {
-			logger.info("Done receiving DTMF. all input: " + userInput);
-			termKeyWasPressed = true;
+		String digit = dtmf.getDigit();
+		applicationDTMFHandler.accept(digit);
+		// complete outside the monitor, so the promise's dependents don't run while holding it
+		if (collect(digit))
 			cancel();
-			return;
+	}
+
+	/**
+	 * Add a received digit to the input and decide whether collection is done
+	 * @param digit DTMF key received
+	 * @return whether collection should stop
+	 */
+	private synchronized boolean collect(String digit) {
+		if (done)
+			return false;
+		stopTimer();
+		if (!digit.isEmpty() && terminatingKey.indexOf(digit.charAt(0)) >= 0) {
+			logger.info("Done receiving DTMF. all input: {}", userInput);
+			termKeyWasPressed = true;
+			return done = true;
 		}
-		userInput = userInput + dtmf.getDigit();
-		if (Objects.equals(inputLength, userInput.length())) {
-			cancel();
+		userInput.append(digit);
+		if (userInput.length() == inputLength)
+			return done = true;
+		if (Objects.nonNull(pattern)) {
+			switch (pattern.match(userInput)) {
+			case COMPLETE:
+				matched = true;
+				// fall through
+			case NO_MATCH:
+				return done = true;
+			case MATCH:
+				matched = true;
+				break;
+			case PARTIAL:
+				matched = false;
+			}
+		}
+		startTimer(interDigitTimeout);
+		return false;
+	}
+
+	/**
+	 * Start the timer that stops collection if no more DTMF is received
+	 * @param timeout time to wait, in milliseconds, or 0 to wait forever
+	 */
+	private void startTimer(long timeout) {
+		if (timeout <= 0 || done)
 			return;
+		int digits = userInput.length();
+		// the timer thread must not run the promise's dependents, so stop on the event dispatcher
+		timer = SharedTimer.schedule(() -> getArity().dispatchTask(() -> timeout(digits)), timeout);
+	}
+
+	private synchronized void stopTimer() {
+		if (Objects.nonNull(timer))
+			timer.cancel();
+		timer = null;
+	}
+
+	private void timeout(int digits) {
+		synchronized (this) {
+			if (done || userInput.length() != digits) // a digit was received while the timeout was dispatched
+				return;
+			logger.info("Timed out receiving DTMF. all input: {}", userInput);
+			timedOut = done = true;
 		}
+		cancel();
 	}
 
 	/**
 	 * set the terminating key
 	 *
-	 * @param termKey
+	 * @param termKey terminating keys, or <code>null</code> for no terminating keys
 	 * @return
 	 */
 	public ReceiveDTMF setTerminatingKey(String termKey) {
-		terminatingKey = termKey;
+		terminatingKey = Objects.toString(termKey, "");
+		return this;
+	}
+
+	/**
+	 * Set the keys that terminate collection when pressed. The terminating key is not added to the input.
+	 * @param termKeys terminating keys, such as <code>"#*"</code>, or the empty string (or <code>null</code>) for no
+	 *   terminating keys
+	 * @return itself for fluent calls
+	 */
+	public ReceiveDTMF setTerminatingKeys(String termKeys) {
+		terminatingKey = Objects.toString(termKeys, "");
+		return this;
+	}
+
+	/**
+	 * Set the patterns the input should match. Collection stops as soon as the input matches a pattern and no longer
+	 * input can match any pattern, or when the input can no longer match any pattern. If the input matches but may
+	 * still be extended (for example a variable length number), collection stops when the inter-digit timeout expires -
+	 * so such patterns need an inter-digit timeout (or terminating keys), otherwise collection continues until the
+	 * maximum length is reached or the call hangs up, and a warning is logged when collection starts.
+	 * @param pattern patterns to match, created by {@link DtmfPatterns#regex(String...)} or
+	 *   {@link DtmfPatterns#digitMap(String)}
+	 * @return itself for fluent calls
+	 */
+	public ReceiveDTMF setPattern(DtmfPatterns pattern) {
+		this.pattern = pattern;
+		return this;
+	}
+
+	/**
+	 * Set how long to wait for the first digit before collection stops
+	 * @param timeout timeout in milliseconds, or 0 (the default) to wait forever
+	 * @return itself for fluent calls
+	 */
+	public ReceiveDTMF setFirstDigitTimeout(long timeout) {
+		firstDigitTimeout = timeout;
+		return this;
+	}
+
+	/**
+	 * Set how long to wait for each digit after the first, before collection stops. This is also how input that matches
+	 * a pattern set with {@link #setPattern(DtmfPatterns)} but may still be extended is completed.
+	 * @param timeout timeout in milliseconds, or 0 (the default) to wait forever
+	 * @return itself for fluent calls
+	 */
+	public ReceiveDTMF setInterDigitTimeout(long timeout) {
+		interDigitTimeout = timeout;
 		return this;
 	}
 
@@ -116,8 +242,8 @@ public class ReceiveDTMF extends CancelableOperations {
 	 *
 	 * @return
 	 */
-	public String getInput() {
-		return userInput;
+	public synchronized String getInput() {
+		return userInput.toString();
 	}
 
 	public boolean isTermKeyWasPressed() {
@@ -128,11 +254,31 @@ public class ReceiveDTMF extends CancelableOperations {
 		this.termKeyWasPressed = termKeyWasPressed;
 	}
 
+	/**
+	 * Check whether the input matched the patterns set with {@link #setPattern(DtmfPatterns)}
+	 * @return whether the collected input matches a pattern
+	 */
+	public synchronized boolean isMatched() {
+		return matched;
+	}
+
+	/**
+	 * Check whether collection stopped because no digit was received before the first-digit or inter-digit timeout
+	 * @return whether collection timed out
+	 */
+	public synchronized boolean isTimedOut() {
+		return timedOut;
+	}
+
 	/**
 	 * unregister from listening to DTMF events
 	 */
 	@Override
 	public CompletableFuture<Void> cancel() {
+		synchronized (this) {
+			done = true;
+			stopTimer();
+		}
 		unregister(this.handler);
 		return CompletableFuture.completedFuture(null);
 	}
@@ -142,7 +288,8 @@ public class ReceiveDTMF extends CancelableOperations {
 	 * @param se saved event we want to unregister from it
 	 */
 	public void unregister(EventHandler<ChannelDtmfReceived>se) {
-		se.unregister();
+		if (Objects.nonNull(se)) // may be cancelled before it was run
+			se.unregister();
 		compFuture.complete(this);
 	}
 
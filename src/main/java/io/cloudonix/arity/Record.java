@@ -118,15 +118,12 @@ public class Record extends CancelableOperations {
 		recordingStartTime = Instant.now();
 		eventHandlers.addAll(Arrays.asList(
 				// wait until Asterisk says we're done
-				getArity().addEventHandler(RecordingFinished.class, getChannelId(), (record, se) -> {
-					String evName = record.getRecording().getName();
-					if (!name.equals(evName))
-						return;
+				getArity().addEventHandler(RecordingFinished.class, EventRouting.recordingKey(EventRouting.channelTarget(getChannelId()), name), (record, se) -> {
 					long duration = Math.abs(Instant.now().toEpochMilli() - recordingStartTime.toEpochMilli());
 					logger.debug("Finished recording! recording duration is: " + duration + "ms, reported " + record.getRecording().getDuration() + "s");
 					recording.setLiveRecording(record.getRecording());
 					waitUntilDone.complete(null);
-				}),
+				}).linkedTo(getChannelId()),
 				
 				// Recognize if Talking was detected during the recording
 				getArity().listenForOneTimeEvent(ChannelTalkingStarted.class, getChannelId(), (talkStarted) -> {
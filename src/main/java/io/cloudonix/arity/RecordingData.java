@@ -64,16 +64,16 @@ public class RecordingData {
 	public CompletableFuture<StoredRecording> getStoredRecording() {
 		if (Objects.nonNull(stored))
 			return CompletableFuture.completedFuture(stored);
-		return Operation.<StoredRecording>retry(cb -> arity.getAri().recordings().getStored(recordingName).execute(cb))
+		return Operation.<StoredRecording>retry(arity, "RecordingData.getStored", cb -> arity.getAri().recordings().getStored(recordingName).execute(cb))
 				.thenApply(s -> stored = s);
 	}
 
 	public CompletableFuture<byte[]> getStoredRecordingData() {
-		return Operation.retry(cb -> arity.getAri().recordings().getStoredFile(recordingName).execute(cb));
+		return Operation.retry(arity, "RecordingData.getStoredFile", cb -> arity.getAri().recordings().getStoredFile(recordingName).execute(cb));
 	}
 	
 	public CompletableFuture<Void> deleteRecording() {
-		return Operation.retry(cb -> arity.getAri().recordings().deleteStored(recordingName));
+		return Operation.retry(arity, "RecordingData.deleteStored", cb -> arity.getAri().recordings().deleteStored(recordingName));
 	}
 
 	public int getDuration() {
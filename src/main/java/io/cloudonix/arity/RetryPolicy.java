@@ -0,0 +1,149 @@
+package io.cloudonix.arity;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Policy that determines if and when a failed ARI operation should be retried.
+ *
+ * A policy can be set for all the operations of an ARIty instance using {@link ARIty#setRetryPolicy(RetryPolicy)},
+ * or for a specific operation type using {@link ARIty#setRetryPolicy(Class, RetryPolicy)}.
+ *
+ * @author odeda
+ */
+public interface RetryPolicy {
+
+	/**
+	 * The legacy retry policy: retry timeouts up to 5 times, one second apart
+	 */
+	public static final RetryPolicy DEFAULT = fixed(1000, 5);
+
+	/**
+	 * Maximum number of times an operation may be retried after the first attempt
+	 * @return number of retries
+	 */
+	int getMaxRetries();
+
+	/**
+	 * How long to wait before retrying an operation
+	 * @param retry the number of the retry about to be made, starting from 1
+	 * @param previousDelay the delay used before the previous retry, in milliseconds, or 0 for the first retry
+	 * @return delay in milliseconds
+	 */
+	long nextDelay(int retry, long previousDelay);
+
+	/**
+	 * How long, since the operation was first started, retries may still be made
+	 * @return deadline in milliseconds, or 0 for no deadline
+	 */
+	default long getDeadline() {
+		return 0;
+	}
+
+	/**
+	 * Check whether an ARI operation failure is transient, and the operation should be retried.
+	 * The default implementation retries only timeouts.
+	 * @param error failure of the last attempt
+	 * @return whether the operation should be retried
+	 */
+	default boolean isRetryable(Throwable error) {
+		String message = error.getMessage();
+		return Objects.nonNull(message) && message.toLowerCase().contains("timeout");
+	}
+
+	/**
+	 * Create a retry policy that waits the same amount of time before each retry
+	 * @param delay delay before each retry, in milliseconds
+	 * @param retries maximum number of retries
+	 * @return a retry policy
+	 */
+	public static RetryPolicy fixed(long delay, int retries) {
+		return new RetryPolicy() {
+			@Override
+			public int getMaxRetries() {
+				return retries;
+			}
+
+			@Override
+			public long nextDelay(int retry, long previousDelay) {
+				return delay;
+			}
+		};
+	}
+
+	/**
+	 * Create a retry policy with exponential backoff and decorrelated jitter, that can be configured using fluent calls
+	 * @return a new backoff retry policy
+	 */
+	public static Backoff backoff() {
+		return new Backoff();
+	}
+
+	/**
+	 * Exponential backoff retry policy with decorrelated jitter: each delay is chosen randomly between the base delay
+	 * and three times the previous delay, capped by the maximum delay. This spreads retries of operations that
+	 * failed together, so they don't hit Asterisk again at the same time.
+	 */
+	public static class Backoff implements RetryPolicy {
+		private long baseDelay = 100;
+		private long maxDelay = 5000;
+		private int maxRetries = 5;
+		private long deadline = 0;
+
+		/**
+		 * Set the minimal delay before a retry. The default is 100ms.
+		 * @param baseDelay delay in milliseconds
+		 * @return itself for fluent calls
+		 */
+		public Backoff setBaseDelay(long baseDelay) {
+			this.baseDelay = baseDelay;
+			return this;
+		}
+
+		/**
+		 * Set the maximal delay before a retry. The default is 5 seconds.
+		 * @param maxDelay delay in milliseconds
+		 * @return itself for fluent calls
+		 */
+		public Backoff setMaxDelay(long maxDelay) {
+			this.maxDelay = maxDelay;
+			return this;
+		}
+
+		/**
+		 * Set the maximal number of retries. The default is 5.
+		 * @param maxRetries number of retries
+		 * @return itself for fluent calls
+		 */
+		public Backoff setMaxRetries(int maxRetries) {
+			this.maxRetries = maxRetries;
+			return this;
+		}
+
+		/**
+		 * Set how long after the operation was started retries may still be made. The default is no deadline.
+		 * @param deadline deadline in milliseconds, or 0 for no deadline
+		 * @return itself for fluent calls
+		 */
+		public Backoff setDeadline(long deadline) {
+			this.deadline = deadline;
+			return this;
+		}
+
+		@Override
+		public int getMaxRetries() {
+			return maxRetries;
+		}
+
+		@Override
+		public long getDeadline() {
+			return deadline;
+		}
+
+		@Override
+		public long nextDelay(int retry, long previousDelay) {
+			long upper = Math.max(baseDelay, previousDelay * 3);
+			return Math.min(maxDelay, ThreadLocalRandom.current().nextLong(baseDelay, upper + 1));
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package io.cloudonix.arity;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Cache of the channel variables of a {@link CallState}, holding the variables that were read from ARI, set by the
+ * application or reported by Asterisk in ChannelVarset events.
+ *
+ * The cache used for new call states can be set using {@link ARIty#setVariableCache(java.util.function.Supplier)}.
+ * The default cache is unbounded; chatty dialplans that keep setting internal variables may want to bound it, or to
+ * only cache the variables the application reads.
+ *
+ * @author odeda
+ */
+public interface VariableCache {
+
+	/**
+	 * Retrieve a cached variable value
+	 * @param name variable name
+	 * @return the cached value, or <code>null</code> if the variable is not cached
+	 */
+	String get(String name);
+
+	/**
+	 * Store a variable value. The cache may choose not to store the value, and values that are <code>null</code>
+	 * are never stored.
+	 * @param name variable name
+	 * @param value variable value
+	 */
+	void put(String name, String value);
+
+	/**
+	 * Retrieve all the cached variables
+	 * @return a snapshot of the cached variables
+	 */
+	Set<Entry<String, String>> entries();
+
+	/**
+	 * Create a cache that stores all variables
+	 * @return a new unbounded cache
+	 */
+	public static VariableCache unbounded() {
+		return new VariableCache() {
+			private Map<String, String> variables = new ConcurrentHashMap<>();
+
+			@Override
+			public String get(String name) {
+				return variables.get(name);
+			}
+
+			@Override
+			public void put(String name, String value) {
+				if (Objects.nonNull(value)) // the map can't store nulls
+					variables.put(name, value);
+			}
+
+			@Override
+			public Set<Entry<String, String>> entries() {
+				return snapshot(variables);
+			}
+
+			@Override
+			public String toString() {
+				return variables.toString();
+			}
+		};
+	}
+
+	/**
+	 * Create a cache that stores up to a maximum number of variables, evicting the least recently used variable when
+	 * it is full
+	 * @param maxSize maximum number of variables to store
+	 * @return a new bounded cache
+	 */
+	public static VariableCache lru(int maxSize) {
+		return new VariableCache() {
+			private Map<String, String> variables = new LinkedHashMap<String, String>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Entry<String, String> eldest) {
+					return size() > maxSize;
+				}
+			};
+
+			@Override
+			public synchronized String get(String name) {
+				return variables.get(name);
+			}
+
+			@Override
+			public synchronized void put(String name, String value) {
+				if (Objects.nonNull(value))
+					variables.put(name, value);
+			}
+
+			@Override
+			public synchronized Set<Entry<String, String>> entries() {
+				return snapshot(variables);
+			}
+
+			@Override
+			public synchronized String toString() {
+				return variables.toString();
+			}
+		};
+	}
+
+	/**
+	 * Create a cache that only stores the specified variables. Reads of other variables always go to ARI.
+	 * @param names names of the variables to store
+	 * @return a new cache
+	 */
+	public static VariableCache allowList(Collection<String> names) {
+		Set<String> allowed = new HashSet<>(names);
+		VariableCache cache = unbounded();
+		return new VariableCache() {
+			@Override
+			public String get(String name) {
+				return cache.get(name);
+			}
+
+			@Override
+			public void put(String name, String value) {
+				if (allowed.contains(name))
+					cache.put(name, value);
+			}
+
+			@Override
+			public Set<Entry<String, String>> entries() {
+				return cache.entries();
+			}
+
+			@Override
+			public String toString() {
+				return cache.toString();
+			}
+		};
+	}
+
+	/**
+	 * Copy the entries of a variable map into an immutable set
+	 * @param variables variable map to copy
+	 * @return a snapshot of the map's entries
+	 */
+	private static Set<Entry<String, String>> snapshot(Map<String, String> variables) {
+		return variables.entrySet().stream().map(e -> new SimpleImmutableEntry<>(e.getKey(), e.getValue()))
+				.collect(Collectors.toSet());
+	}
+}
@@ -0,0 +1,14 @@
+package io.cloudonix.arity.errors;
+
+/**
+ * Thrown when an ARI operation is not executed because the circuit breaker is open
+ *
+ * @author odeda
+ */
+public class CircuitOpenException extends ARItyException {
+	private static final long serialVersionUID = 1L;
+
+	public CircuitOpenException() {
+		super("ARI circuit breaker is open, operation was not executed");
+	}
+}
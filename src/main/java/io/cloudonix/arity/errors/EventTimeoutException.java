@@ -0,0 +1,14 @@
+package io.cloudonix.arity.errors;
+
+/**
+ * Thrown when an expected ARI event did not arrive in time
+ *
+ * @author odeda
+ */
+public class EventTimeoutException extends ARItyException {
+	private static final long serialVersionUID = 1L;
+
+	public EventTimeoutException(String eventType, String channelId) {
+		super("Timed out waiting for " + eventType + " on " + channelId);
+	}
+}
@@ -9,4 +9,8 @@ public class ChannelNotFoundException extends ARItyException {
 		super(cause);
 	}
 
+	public ChannelNotFoundException(String message) {
+		super(message);
+	}
+
 }
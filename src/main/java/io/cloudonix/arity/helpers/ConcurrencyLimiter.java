@@ -0,0 +1,119 @@
+package io.cloudonix.arity.helpers;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Limit the number of asynchronous tasks running at the same time.
+ *
+ * Tasks submitted while the limit is reached wait in a bounded queue and are started, in order, as running tasks
+ * complete. When the queue is full, new tasks are rejected immediately.
+ *
+ * @author odeda
+ */
+public class ConcurrencyLimiter {
+
+	private final int maxConcurrent;
+	private final int maxQueued;
+	private final Queue<Runnable> queue = new ArrayDeque<>();
+	private int running;
+	private int released;
+	private boolean releasing;
+
+	/**
+	 * Create a new concurrency limiter
+	 * @param maxConcurrent maximum number of tasks running at the same time
+	 * @param maxQueued maximum number of tasks waiting to be started
+	 */
+	public ConcurrencyLimiter(int maxConcurrent, int maxQueued) {
+		this.maxConcurrent = maxConcurrent;
+		this.maxQueued = maxQueued;
+	}
+
+	/**
+	 * Start an asynchronous task when the concurrency limit allows it
+	 * @param task task to start, returning a promise for its completion
+	 * @return a promise that will be completed with the result of the task, or fail with a
+	 *   {@link RejectedExecutionException} if the limiter's queue is full
+	 */
+	public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> task) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		synchronized (this) {
+			if (running >= maxConcurrent) {
+				if (queue.size() >= maxQueued)
+					return CompletableFuture.failedFuture(new RejectedExecutionException(
+							"Too many concurrent requests: " + running + " running and " + queue.size() + " waiting"));
+				queue.add(() -> start(task, result));
+				return result;
+			}
+			running++;
+		}
+		start(task, result);
+		return result;
+	}
+
+	/**
+	 * Check how many tasks are currently running
+	 * @return number of running tasks
+	 */
+	public synchronized int getRunning() {
+		return running;
+	}
+
+	/**
+	 * Check how many tasks are waiting to be started
+	 * @return number of waiting tasks
+	 */
+	public synchronized int getQueued() {
+		return queue.size();
+	}
+
+	private <T> void start(Supplier<CompletableFuture<T>> task, CompletableFuture<T> result) {
+		CompletableFuture<T> started;
+		try {
+			started = task.get();
+		} catch (Throwable t) {
+			started = CompletableFuture.failedFuture(t);
+		}
+		started.whenComplete((v,t) -> {
+			release();
+			if (t != null)
+				result.completeExceptionally(t);
+			else
+				result.complete(v);
+		});
+	}
+
+	/**
+	 * Release the slot of a task that completed, handing it to the next waiting task. Waiting tasks are started in a
+	 * loop rather than recursively, so tasks that complete synchronously (e.g. fail immediately) release their slots
+	 * to the loop instead of growing the stack for each task in the queue.
+	 */
+	private void release() {
+		synchronized (this) {
+			released++;
+			if (releasing) // another call is already starting waiting tasks, and will pick up this slot
+				return;
+			releasing = true;
+		}
+		while (true) {
+			Runnable next;
+			synchronized (this) {
+				if (released == 0) {
+					releasing = false;
+					return;
+				}
+				released--;
+				next = queue.poll();
+				if (next == null) {
+					running--;
+					continue;
+				}
+			}
+			next.run();
+		}
+	}
+}
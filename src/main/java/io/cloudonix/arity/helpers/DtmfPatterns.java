@@ -0,0 +1,157 @@
+package io.cloudonix.arity.helpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A set of patterns that DTMF input is matched against while it is being collected, to decide whether collection
+ * can stop as soon as possible.
+ *
+ * Patterns can be specified as regular expressions, or as an MGCP style digit map, such as
+ * <code>"[1-8]xx|9011x.|0T"</code>, where:
+ * <ul>
+ * <li><code>|</code> separates alternative patterns</li>
+ * <li><code>0</code>-<code>9</code>, <code>*</code>, <code>#</code> and <code>A</code>-<code>D</code> match
+ * themselves</li>
+ * <li><code>x</code> matches any digit</li>
+ * <li><code>[...]</code> matches any of the listed keys or key ranges, e.g. <code>[1-5*]</code></li>
+ * <li><code>.</code> matches zero or more repetitions of the previous element</li>
+ * <li><code>T</code> marks a pattern that is completed by the inter-digit timer - which is how any input that
+ * matches a pattern but may still be extended is completed, so it is accepted and ignored</li>
+ * </ul>
+ *
+ * @author odeda
+ */
+public class DtmfPatterns {
+
+	/**
+	 * The result of matching collected input against the patterns
+	 */
+	public enum Result {
+		/** The input does not match any pattern yet, but more input may match */
+		PARTIAL,
+		/** The input matches a pattern, but more input may also match - wait for the inter-digit timeout */
+		MATCH,
+		/** The input matches a pattern, and no more input can match - collection is complete */
+		COMPLETE,
+		/** The input does not match any pattern and no more input can match */
+		NO_MATCH
+	}
+
+	private static final String KEYS = "0123456789*#ABCD";
+
+	private final Pattern[] patterns;
+
+	private DtmfPatterns(Pattern[] patterns) {
+		this.patterns = patterns;
+	}
+
+	/**
+	 * Create a pattern set from regular expressions
+	 * @param regexes regular expressions that the complete input should match
+	 * @return a new pattern set
+	 * @throws PatternSyntaxException if one of the expressions is invalid
+	 */
+	public static DtmfPatterns regex(String... regexes) {
+		Pattern[] patterns = new Pattern[regexes.length];
+		for (int i = 0; i < regexes.length; i++)
+			patterns[i] = Pattern.compile(regexes[i]);
+		return new DtmfPatterns(patterns);
+	}
+
+	/**
+	 * Create a pattern set from an MGCP style digit map
+	 * @param digitMap digit map to parse
+	 * @return a new pattern set
+	 * @throws IllegalArgumentException if the digit map is invalid
+	 */
+	public static DtmfPatterns digitMap(String digitMap) {
+		String map = digitMap.trim();
+		if (map.startsWith("(") && map.endsWith(")"))
+			map = map.substring(1, map.length() - 1);
+		List<Pattern> patterns = new ArrayList<>();
+		for (String alternative : map.split("\\|"))
+			patterns.add(Pattern.compile(digitMapToRegex(alternative.trim())));
+		return new DtmfPatterns(patterns.toArray(new Pattern[patterns.size()]));
+	}
+
+	/**
+	 * Match collected input against the patterns
+	 * @param input DTMF keys collected so far
+	 * @return whether the input matches, may match or can't match the patterns
+	 */
+	public Result match(CharSequence input) {
+		boolean matched = false, extendable = false;
+		for (Pattern pattern : patterns) {
+			Matcher matcher = pattern.matcher(input);
+			matched |= matcher.matches();
+			extendable = extendable || canExtend(matcher, input);
+			if (matched && extendable)
+				return Result.MATCH;
+		}
+		if (matched)
+			return Result.COMPLETE;
+		return extendable ? Result.PARTIAL : Result.NO_MATCH;
+	}
+
+	/**
+	 * Check whether any longer input could match a pattern, by checking whether the input followed by any DTMF key is
+	 * a prefix of a possible match. When a match fails, {@link Matcher#hitEnd()} reliably reports whether more input
+	 * could have made it succeed - but a successful match stops at the first alternative that matched, so it can't
+	 * be used to check the input itself.
+	 * @param matcher matcher of the pattern to check, that will be reset
+	 * @param input the input collected so far
+	 * @return whether a longer input may match the pattern
+	 */
+	private static boolean canExtend(Matcher matcher, CharSequence input) {
+		StringBuilder longer = new StringBuilder(input.length() + 1).append(input).append(' ');
+		for (int i = 0; i < KEYS.length(); i++) {
+			longer.setCharAt(input.length(), KEYS.charAt(i));
+			matcher.reset(longer);
+			if (matcher.matches() || matcher.hitEnd())
+				return true;
+		}
+		return false;
+	}
+
+	private static String digitMapToRegex(String pattern) {
+		StringBuilder regex = new StringBuilder();
+		for (int i = 0; i < pattern.length(); i++) {
+			char c = pattern.charAt(i);
+			switch (c) {
+			case 'x': case 'X':
+				regex.append("[0-9]");
+				break;
+			case '.':
+				if (regex.length() == 0)
+					throw new IllegalArgumentException("Repetition without an element in digit map pattern " + pattern);
+				regex.append('*');
+				break;
+			case 'T': case 't':
+				break;
+			case '[':
+				int end = pattern.indexOf(']', i);
+				if (end < 0)
+					throw new IllegalArgumentException("Unterminated key range in digit map pattern " + pattern);
+				regex.append('[');
+				for (char k : pattern.substring(i + 1, end).toCharArray())
+					regex.append(k == '-' ? "-" : Pattern.quote(String.valueOf(checkKey(k, pattern))));
+				regex.append(']');
+				i = end;
+				break;
+			default:
+				regex.append(Pattern.quote(String.valueOf(checkKey(c, pattern))));
+			}
+		}
+		return regex.toString();
+	}
+
+	private static char checkKey(char key, String pattern) {
+		if (KEYS.indexOf(Character.toUpperCase(key)) < 0)
+			throw new IllegalArgumentException("Invalid key '" + key + "' in digit map pattern " + pattern);
+		return Character.toUpperCase(key);
+	}
+}
@@ -0,0 +1,97 @@
+package io.cloudonix.arity.helpers;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Run tasks serially per key, on a shared executor.
+ *
+ * Each key gets a mailbox that is drained by a single task submitted to the shared executor, so tasks submitted
+ * for the same key run one at a time and in submission order, while tasks of different keys run in parallel.
+ * A mailbox is removed as soon as it is drained, so keys that are no longer used do not take up any memory.
+ *
+ * @author odeda
+ */
+public class KeyedSerialExecutor {
+	private final static Logger logger = LoggerFactory.getLogger(KeyedSerialExecutor.class);
+	/** how many tasks to run before yielding the shared executor thread to other mailboxes */
+	private static final int BATCH_SIZE = 64;
+
+	private final ConcurrentHashMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+	private final Executor executor;
+
+	/**
+	 * Create a new serial executor
+	 * @param executor shared executor that will run the mailboxes
+	 */
+	public KeyedSerialExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Run a task after all the tasks previously submitted for the same key have completed
+	 * @param key key to serialize the task on
+	 * @param task task to run
+	 */
+	public void execute(String key, Runnable task) {
+		boolean[] schedule = { false };
+		Mailbox mailbox = mailboxes.compute(key, (k, mb) -> {
+			if (mb == null)
+				mb = new Mailbox(k);
+			mb.tasks.add(task);
+			if (!mb.scheduled)
+				schedule[0] = mb.scheduled = true;
+			return mb;
+		});
+		if (schedule[0])
+			executor.execute(mailbox);
+	}
+
+	/**
+	 * Check how many keys currently have tasks waiting or running
+	 * @return number of active mailboxes
+	 */
+	public int size() {
+		return mailboxes.size();
+	}
+
+	private class Mailbox implements Runnable {
+		private final String key;
+		private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+		private boolean scheduled; // only accessed while holding the mailbox map entry
+
+		Mailbox(String key) {
+			this.key = key;
+		}
+
+		@Override
+		public void run() {
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				Runnable task = tasks.poll();
+				if (task == null)
+					break;
+				try {
+					task.run();
+				} catch (Throwable t) {
+					logger.warn("Error running task for " + key, t);
+				}
+			}
+			boolean[] reschedule = { false };
+			mailboxes.compute(key, (k, mb) -> {
+				if (tasks.isEmpty()) {
+					scheduled = false;
+					return null;
+				}
+				reschedule[0] = true;
+				return this;
+			});
+			if (reschedule[0])
+				executor.execute(this);
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package io.cloudonix.arity.helpers;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+
+/**
+ * A single hashed wheel timer shared by all the timeouts in ARIty.
+ *
+ * Scheduling and cancelling a timeout on a hashed wheel is cheap and doesn't depend on the number of pending timeouts,
+ * which makes it suitable for bounding the many event waits of a busy system, most of which are cancelled long before
+ * they expire. The timer has a resolution of 10ms and a single thread, so expiry tasks must be short and must not
+ * block - dispatch any real work to an executor.
+ *
+ * @author odeda
+ */
+public class SharedTimer {
+
+	private static final HashedWheelTimer timer = new HashedWheelTimer(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "arity-timer");
+			thread.setDaemon(true);
+			return thread;
+		}
+	}, 10, TimeUnit.MILLISECONDS);
+
+	private SharedTimer() {}
+
+	/**
+	 * Schedule a task to run on the timer thread after the specified delay
+	 * @param task task to run
+	 * @param delay delay in milliseconds
+	 * @return a handle that can be used to cancel the task
+	 */
+	public static Timeout schedule(Runnable task, long delay) {
+		return timer.newTimeout(t -> task.run(), delay, TimeUnit.MILLISECONDS);
+	}
+}
@@ -0,0 +1,40 @@
+package io.cloudonix.arity.helpers;
+
+/**
+ * A simple token bucket rate limiter: tokens are added at a fixed rate, up to the capacity of the bucket, and
+ * each permitted action takes one token.
+ *
+ * @author odeda
+ */
+public class TokenBucket {
+
+	private final double ratePerNano;
+	private final double capacity;
+	private double tokens;
+	private long lastRefill;
+
+	/**
+	 * Create a new token bucket that starts full
+	 * @param ratePerSecond how many tokens are added each second, which is also the capacity of the bucket
+	 */
+	public TokenBucket(int ratePerSecond) {
+		this.ratePerNano = ratePerSecond / 1e9;
+		this.capacity = ratePerSecond;
+		this.tokens = capacity;
+		this.lastRefill = System.nanoTime();
+	}
+
+	/**
+	 * Take a token from the bucket, if one is available
+	 * @return whether a token was taken
+	 */
+	public synchronized boolean tryAcquire() {
+		long now = System.nanoTime();
+		tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+		lastRefill = now;
+		if (tokens < 1)
+			return false;
+		tokens--;
+		return true;
+	}
+}
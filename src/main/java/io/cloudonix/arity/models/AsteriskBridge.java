@@ -1,5 +1,7 @@
 package io.cloudonix.arity.models;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
@@ -11,6 +13,8 @@ import ch.loway.oss.ari4java.generated.models.ChannelEnteredBridge;
 import ch.loway.oss.ari4java.generated.models.ChannelLeftBridge;
 import ch.loway.oss.ari4java.generated.models.LiveRecording;
 import io.cloudonix.arity.ARIty;
+import io.cloudonix.arity.BridgeMembership;
+import io.cloudonix.arity.EventRouting;
 import io.cloudonix.arity.Operation;
 import io.cloudonix.arity.errors.bridge.BridgeNotFoundException;
 import io.cloudonix.arity.errors.bridge.ChannelNotAllowedInBridge;
@@ -22,15 +26,32 @@ public class AsteriskBridge {
 	private ARIty arity;
 	private Bridge bridge;
 	private ActionBridges api;
+	private BridgeMembership membership;
 
 	public AsteriskBridge(ARIty arity, Bridge bridge) {
 		this.arity = arity;
 		this.bridge = bridge;
 		this.api = arity.getAri().bridges();
+		this.membership = arity.getBridgeMembership(bridge.getId());
+		if (Objects.nonNull(bridge.getChannels()))
+			membership.reset(bridge.getChannels());
+	}
+
+	/**
+	 * Reload the bridge from Asterisk, and resynchronize the locally tracked bridge members
+	 * @return a promise for the bridge itself
+	 */
+	public CompletableFuture<AsteriskBridge> reload() {
+		return Operation.<Bridge>retry(arity, "AsteriskBridge.get", cb -> api.get(bridge.getId()).execute(cb), this::mapExceptions)
+				.thenApply(b -> {
+					bridge = b;
+					membership.reset(b.getChannels());
+					return this;
+				});
 	}
 	
 	public CompletableFuture<Void> destroy() {
-		return Operation.retry(cb -> api.destroy(bridge.getId()).execute(cb));
+		return Operation.retry(arity, "AsteriskBridge.destroy", cb -> api.destroy(bridge.getId()).execute(cb));
 	}
 	
 	/* Channel Management */
@@ -61,7 +82,7 @@ public class AsteriskBridge {
 			arity.listenForOneTimeEvent(ChannelEnteredBridge.class, channelId, e -> waitForAdded.complete(null));
 		else
 			waitForAdded.complete(null);
-		return Operation.<Void>retry(cb -> api.addChannel(bridge.getId(), channelId).setRole("member").execute(cb), this::mapExceptions)
+		return Operation.<Void>retry(arity, "AsteriskBridge.addChannel", cb -> api.addChannel(bridge.getId(), channelId).setRole("member").execute(cb), this::mapExceptions)
 				.thenCompose(v -> waitForAdded);
 	}
 	
@@ -91,7 +112,7 @@ public class AsteriskBridge {
 			arity.listenForOneTimeEvent(ChannelLeftBridge.class, channelId, e -> waitForRemoved.complete(null));
 		else
 			waitForRemoved.complete(null);
-		return Operation.<Void>retry(cb -> api.removeChannel(bridge.getId(), channelId).execute(cb), this::mapExceptions)
+		return Operation.<Void>retry(arity, "AsteriskBridge.removeChannel", cb -> api.removeChannel(bridge.getId(), channelId).execute(cb), this::mapExceptions)
 				.exceptionally(Futures.on(ChannelNotInBridgeException.class, e -> {
 					waitForRemoved.complete(null);
 					return null;
@@ -100,6 +121,41 @@ public class AsteriskBridge {
 	}
 
 	
+	/* Membership, tracked locally from bridge events */
+
+	/**
+	 * Check how many channels are in the bridge. See {@link #getChannels()} for where the answer comes from.
+	 * @return number of channels in the bridge
+	 */
+	public int getChannelCount() {
+		return membership.isSynced() ? membership.size() : snapshotChannels().size();
+	}
+
+	/**
+	 * Retrieve the channels in the bridge, from the locally tracked members when they are synchronized with Asterisk.
+	 * Otherwise - for example after the event websocket reconnected, until it is resynchronized - the channels are
+	 * taken from the bridge as it was when this object was created or last reloaded, so call {@link #reload()} first
+	 * if they must be current.
+	 * @return IDs of the channels in the bridge
+	 */
+	public List<String> getChannels() {
+		return membership.isSynced() ? membership.getChannels() : snapshotChannels();
+	}
+
+	/**
+	 * Check whether a channel is in the bridge. See {@link #getChannels()} for where the answer comes from.
+	 * @param channelId ID of the channel
+	 * @return whether the channel is in the bridge
+	 */
+	public boolean hasChannel(String channelId) {
+		return membership.isSynced() ? membership.contains(channelId) : snapshotChannels().contains(channelId);
+	}
+
+	private List<String> snapshotChannels() {
+		List<String> channels = bridge.getChannels();
+		return Objects.nonNull(channels) ? Collections.unmodifiableList(channels) : Collections.emptyList();
+	}
+
 	/* Recording */
 	
 	public CompletableFuture<AsteriskRecording> record() {
@@ -111,7 +167,7 @@ public class AsteriskBridge {
 	}
 	
 	public CompletableFuture<AsteriskRecording> record(Consumer<AsteriskRecording.Builder> withBuilder) {
-		return Operation.<LiveRecording>retry(cb ->  AsteriskRecording.build(withBuilder).build(api.record(bridge.getId(), null, null), arity).execute(cb), this::mapExceptions)
+		return Operation.<LiveRecording>retry(arity, "AsteriskBridge.record", cb ->  AsteriskRecording.build(EventRouting.bridgeTarget(bridge.getId()), withBuilder).build(api.record(bridge.getId(), null, null), arity).execute(cb), this::mapExceptions)
 				.thenApply(rec -> new AsteriskRecording(arity, rec));
 	}
 	
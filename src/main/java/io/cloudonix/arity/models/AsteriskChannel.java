@@ -8,6 +8,7 @@ import ch.loway.oss.ari4java.generated.actions.ActionChannels;
 import ch.loway.oss.ari4java.generated.models.Channel;
 import ch.loway.oss.ari4java.generated.models.LiveRecording;
 import io.cloudonix.arity.ARIty;
+import io.cloudonix.arity.EventRouting;
 import io.cloudonix.arity.Operation;
 
 public class AsteriskChannel {
@@ -62,7 +63,7 @@ public class AsteriskChannel {
 	}
 	
 	public CompletableFuture<AsteriskRecording> record(Consumer<AsteriskRecording.Builder> withBuilder) {
-		return Operation.<LiveRecording>retry(cb ->  AsteriskRecording.build(withBuilder).build(api.record(getId(), null, null), arity).execute(cb), this::mapExceptions)
+		return Operation.<LiveRecording>retry(arity, "AsteriskChannel.record", cb ->  AsteriskRecording.build(EventRouting.channelTarget(getId()), withBuilder).build(api.record(getId(), null, null), arity).execute(cb), this::mapExceptions)
 				.thenApply(rec -> new AsteriskRecording(arity, rec));
 	}
 
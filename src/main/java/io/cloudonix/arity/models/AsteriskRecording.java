@@ -1,6 +1,5 @@
 package io.cloudonix.arity.models;
 
-import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicReference;
@@ -18,8 +17,10 @@ import ch.loway.oss.ari4java.generated.models.RecordingFinished;
 import ch.loway.oss.ari4java.generated.models.RecordingStarted;
 import io.cloudonix.arity.ARIty;
 import io.cloudonix.arity.EventHandler;
+import io.cloudonix.arity.EventRouting;
 import io.cloudonix.arity.Operation;
 import io.cloudonix.arity.RecordingData;
+import io.cloudonix.arity.errors.EventTimeoutException;
 
 public class AsteriskRecording {
 
@@ -46,8 +47,11 @@ public class AsteriskRecording {
 		private Integer maxSilence;
 		private String dtmf;
 		private AtomicReference<Consumer<AsteriskRecording>> startHandler = new AtomicReference<>();
+		private final String targetUri;
 		
-		private Builder() {}
+		private Builder(String targetUri) {
+			this.targetUri = targetUri;
+		}
 
 		public Builder withName(String filename) {
 			this.filename = filename;
@@ -91,7 +95,8 @@ public class AsteriskRecording {
 			if (dtmf != null && !dtmf.isEmpty())
 				req.setTerminateOn(dtmf);
 			if (startHandler != null)
-				arity.addGeneralEventHandler(RecordingStarted.class, recordingStartedHandler(arity));
+				arity.addEventHandler(RecordingStarted.class, EventRouting.recordingKey(targetUri, filename), recordingStartedHandler(arity))
+						.linkedTo(EventRouting.targetKey(targetUri));
 			return req;
 		}
 
@@ -107,7 +112,8 @@ public class AsteriskRecording {
 			if (dtmf != null)
 				req.setTerminateOn(dtmf);
 			if (startHandler != null)
-				arity.addGeneralEventHandler(RecordingStarted.class, recordingStartedHandler(arity));
+				arity.addEventHandler(RecordingStarted.class, EventRouting.recordingKey(targetUri, filename), recordingStartedHandler(arity))
+						.linkedTo(EventRouting.targetKey(targetUri));
 			return req;
 		}
 
@@ -118,16 +124,16 @@ public class AsteriskRecording {
 		
 		private BiConsumer<RecordingStarted, EventHandler<RecordingStarted>> recordingStartedHandler(ARIty arity) {
 			return (rs,se) -> {
-				if (!Objects.equals(rs.getRecording().getName(), filename) || startHandler.get() == null) return;
 				se.unregister();
+				if (startHandler.get() == null) return;
 				Consumer<AsteriskRecording> h = startHandler.getAndSet(null);
 				h.accept(new AsteriskRecording(arity, rs.getRecording()));
 			};
 		}
 	}
 
-	static Builder build(Consumer<Builder> withBuilder) {
-		Builder builder = new Builder();
+	static Builder build(String targetUri, Consumer<Builder> withBuilder) {
+		Builder builder = new Builder(targetUri);
 		withBuilder.accept(builder);
 		return builder;
 	}
@@ -166,13 +172,13 @@ public class AsteriskRecording {
 	
 	public CompletableFuture<AsteriskRecording> waitUntilEnd() {
 		CompletableFuture<AsteriskRecording> waitForDone = new CompletableFuture<>();
-		arity.addGeneralEventHandler(RecordingFinished.class, (e,se) -> {
-			if (!e.getRecording().getName().equals(rec.getName())) return;
-			se.unregister();
+		String recordingKey = EventRouting.recordingKey(rec.getTarget_uri(), rec.getName());
+		arity.listenForOneTimeEvent(RecordingFinished.class, recordingKey, e -> {
 			storedRecording.setLiveRecording(rec = e.getRecording());
 			log.debug("Recording finished: {}", this);
 			waitForDone.complete(this);
-		});
+		}).linkedTo(EventRouting.targetKey(rec.getTarget_uri())).withTimeout(arity.getEventWaitTimeout(), () -> waitForDone.completeExceptionally(
+				new EventTimeoutException(RecordingFinished.class.getSimpleName(), recordingKey)));
 		return waitForDone;
 	}
 	
@@ -187,7 +193,7 @@ public class AsteriskRecording {
 			waitUntilEnd().thenAccept(waitForDone::complete);
 		else
 			waitForDone.complete(this);
-		return Operation.<Void>retry(cb -> api.cancel(rec.getName()).execute(cb))
+		return Operation.<Void>retry(arity, "AsteriskRecording.cancel", cb -> api.cancel(rec.getName()).execute(cb))
 				.thenCompose(v -> waitForDone);
 	}
 	
@@ -201,7 +207,7 @@ public class AsteriskRecording {
 			waitUntilEnd().thenAccept(waitForDone::complete);
 		else
 			waitForDone.complete(this);
-		return Operation.<Void>retry(cb -> api.stop(rec.getName()).execute(cb))
+		return Operation.<Void>retry(arity, "AsteriskRecording.stop", cb -> api.stop(rec.getName()).execute(cb))
 				.thenCompose(v -> waitForDone);
 	}
 
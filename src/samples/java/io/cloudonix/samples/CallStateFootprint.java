@@ -0,0 +1,56 @@
+package io.cloudonix.samples;
+
+import java.lang.reflect.Proxy;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.loway.oss.ari4java.generated.models.Channel;
+import io.cloudonix.arity.ARIty;
+import io.cloudonix.arity.CallState;
+import io.cloudonix.arity.errors.ConnectionFailedException;
+
+/**
+ * Estimate the heap used by each live call's {@link CallState}, including its event subscriptions, by creating many
+ * call states for fake channels and measuring the heap before and after. Run with a fixed heap (for example
+ * <code>-Xms1g -Xmx1g</code>) for stable results.
+ *
+ * @author odeda
+ */
+public class CallStateFootprint {
+
+	public static void main(String[] args) throws ConnectionFailedException, URISyntaxException, InterruptedException {
+		int calls = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		ARIty arity = new ARIty(null, "footprint", null, null); // not connected to Asterisk
+		List<CallState> states = new ArrayList<>(calls);
+		long before = usedMemory();
+		for (int i = 0; i < calls; i++)
+			states.add(new CallState(channel("footprint-" + i), arity));
+		long after = usedMemory();
+		System.out.println(calls + " call states with " + arity.getEventHandlerCount() + " event handlers use " +
+				(after - before) / calls + " bytes per call");
+		System.out.println(states.get(0)); // keep the call states reachable until measured
+	}
+
+	private static Channel channel(String id) {
+		return (Channel) Proxy.newProxyInstance(Channel.class.getClassLoader(), new Class<?>[] { Channel.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getId": return id;
+					case "getName": return "PJSIP/" + id;
+					case "getState": return "Up";
+					case "toString": return id;
+					default: return null;
+					}
+				});
+	}
+
+	private static long usedMemory() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
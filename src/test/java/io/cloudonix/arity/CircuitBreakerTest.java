@@ -0,0 +1,95 @@
+package io.cloudonix.arity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import io.cloudonix.arity.CircuitBreaker.State;
+
+public class CircuitBreakerTest {
+
+	@Test
+	public void testTripsOnFailureRate() {
+		CircuitBreaker breaker = new CircuitBreaker().setWindowSize(10).setMinimumRequests(4).setFailureRateThreshold(0.5);
+		breaker.onSuccess(0);
+		breaker.onFailure(0);
+		breaker.onFailure(0);
+		assertEquals(State.CLOSED, breaker.getState()); // not enough requests yet
+		breaker.onSuccess(0);
+		assertEquals(State.OPEN, breaker.getState());
+		assertFalse(breaker.tryAcquire());
+	}
+
+	@Test
+	public void testWindowForgetsOldOutcomes() {
+		CircuitBreaker breaker = new CircuitBreaker().setWindowSize(4).setMinimumRequests(4).setFailureRateThreshold(0.5);
+		breaker.onFailure(0);
+		breaker.onSuccess(0);
+		breaker.onSuccess(0);
+		breaker.onSuccess(0);
+		breaker.onFailure(0); // pushes the first failure out of the window
+		assertEquals(State.CLOSED, breaker.getState());
+		breaker.onFailure(0);
+		assertEquals(State.OPEN, breaker.getState());
+	}
+
+	@Test
+	public void testTripsOnSlowRate() {
+		CircuitBreaker breaker = new CircuitBreaker().setWindowSize(4).setMinimumRequests(4).setSlowRateThreshold(0.75)
+				.setSlowRequestThreshold(10);
+		long slow = 20_000_000L;
+		breaker.onSuccess(slow);
+		breaker.onSuccess(slow);
+		breaker.onSuccess(0);
+		assertEquals(State.CLOSED, breaker.getState());
+		breaker.onSuccess(slow);
+		assertEquals(State.OPEN, breaker.getState());
+	}
+
+	@Test
+	public void testHalfOpenProbesClose() throws InterruptedException {
+		CircuitBreaker breaker = tripped(2);
+		assertFalse(breaker.tryAcquire());
+		Thread.sleep(100);
+		assertEquals(State.HALF_OPEN, breaker.getState());
+		assertTrue(breaker.tryAcquire());
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire()); // only as many probes as needed are let through
+		breaker.onSuccess(0);
+		assertEquals(State.HALF_OPEN, breaker.getState());
+		breaker.onSuccess(0);
+		assertEquals(State.CLOSED, breaker.getState());
+		assertTrue(breaker.tryAcquire());
+	}
+
+	@Test
+	public void testHalfOpenProbeFailureReopens() throws InterruptedException {
+		CircuitBreaker breaker = tripped(2);
+		Thread.sleep(100);
+		assertTrue(breaker.tryAcquire());
+		breaker.onFailure(0);
+		assertEquals(State.OPEN, breaker.getState());
+		assertFalse(breaker.tryAcquire());
+	}
+
+	@Test
+	public void testReleasedProbeCanBeRetried() throws InterruptedException {
+		CircuitBreaker breaker = tripped(1);
+		Thread.sleep(100);
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire());
+		breaker.release();
+		assertTrue(breaker.tryAcquire());
+	}
+
+	private CircuitBreaker tripped(int probes) {
+		CircuitBreaker breaker = new CircuitBreaker().setWindowSize(2).setMinimumRequests(2).setOpenDuration(50)
+				.setProbes(probes);
+		breaker.onFailure(0);
+		breaker.onFailure(0);
+		assertEquals(State.OPEN, breaker.getState());
+		return breaker;
+	}
+}
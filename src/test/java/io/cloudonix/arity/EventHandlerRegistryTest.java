@@ -0,0 +1,73 @@
+package io.cloudonix.arity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+
+import org.junit.Test;
+
+import ch.loway.oss.ari4java.generated.models.ChannelDtmfReceived;
+import ch.loway.oss.ari4java.generated.models.Message;
+import ch.loway.oss.ari4java.generated.models.PlaybackFinished;
+import ch.loway.oss.ari4java.generated.models.RecordingFinished;
+
+public class EventHandlerRegistryTest {
+
+	private EventHandlerRegistry registry = new EventHandlerRegistry();
+
+	private <T extends Message> EventHandler<T> add(Class<T> type, String key) {
+		EventHandler<T> handler = new EventHandler<>(key, (e, se) -> {}, type, null);
+		registry.add(handler);
+		return handler;
+	}
+
+	@Test
+	public void testLinkedKeysAreRemovedWithTheChannel() {
+		EventHandler<ChannelDtmfReceived> dtmf = add(ChannelDtmfReceived.class, "c1");
+		EventHandler<PlaybackFinished> playback = add(PlaybackFinished.class, EventRouting.playbackKey("p1"));
+		EventHandler<RecordingFinished> recording = add(RecordingFinished.class,
+				EventRouting.recordingKey(EventRouting.channelTarget("c1"), "r1"));
+		EventHandler<PlaybackFinished> other = add(PlaybackFinished.class, EventRouting.playbackKey("p2"));
+		registry.link(playback, "c1");
+		registry.link(recording, "c1");
+		registry.link(other, "c2");
+		Collection<EventHandler<?>> removed = registry.removeChannel("c1");
+		assertEquals(3, removed.size());
+		assertTrue(removed.contains(dtmf) && removed.contains(playback) && removed.contains(recording));
+		assertEquals(1, registry.size());
+		assertEquals(1, registry.removeChannel("c2").size());
+		assertEquals(0, registry.size());
+	}
+
+	@Test
+	public void testLinkedKeysAreRemovedWithoutChannelHandlers() {
+		EventHandler<PlaybackFinished> playback = add(PlaybackFinished.class, EventRouting.playbackKey("p1"));
+		registry.link(playback, EventRouting.bridgeKey("b1"));
+		assertEquals(1, registry.removeChannel(EventRouting.bridgeKey("b1")).size());
+		assertEquals(0, registry.size());
+		assertTrue(registry.snapshot().isEmpty());
+	}
+
+	@Test
+	public void testRemovedKeysAreUnlinked() {
+		EventHandler<PlaybackFinished> playback = add(PlaybackFinished.class, EventRouting.playbackKey("p1"));
+		registry.link(playback, "c1");
+		registry.remove(playback);
+		// the key is reused after it was unlinked, by a handler that is not linked to the channel
+		EventHandler<PlaybackFinished> reused = add(PlaybackFinished.class, EventRouting.playbackKey("p1"));
+		assertTrue(registry.removeChannel("c1").isEmpty());
+		assertEquals(1, registry.size());
+		registry.remove(reused);
+		// linking a handler that was already removed does nothing
+		registry.link(reused, "c1");
+		add(PlaybackFinished.class, EventRouting.playbackKey("p1"));
+		assertTrue(registry.removeChannel("c1").isEmpty());
+	}
+
+	@Test
+	public void testTargetKeys() {
+		assertEquals("c1", EventRouting.targetKey(EventRouting.channelTarget("c1")));
+		assertEquals(EventRouting.bridgeKey("b1"), EventRouting.targetKey(EventRouting.bridgeTarget("b1")));
+	}
+}
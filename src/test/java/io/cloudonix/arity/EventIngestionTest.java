@@ -0,0 +1,220 @@
+package io.cloudonix.arity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import ch.loway.oss.ari4java.generated.models.Channel;
+import ch.loway.oss.ari4java.generated.models.ChannelStateChange;
+import ch.loway.oss.ari4java.generated.models.ChannelTalkingStarted;
+import ch.loway.oss.ari4java.generated.models.ChannelVarset;
+import ch.loway.oss.ari4java.generated.models.Message;
+import ch.loway.oss.ari4java.generated.models.StasisStart;
+import io.cloudonix.arity.ARIty.OverloadPolicy;
+
+public class EventIngestionTest {
+
+	/**
+	 * Records dispatched events, and holds the drainer in the first dispatch until released, so tests can fill the
+	 * buffer deterministically
+	 */
+	static class TestDispatcher implements EventIngestion.Dispatcher {
+		final List<Message> dispatched = Collections.synchronizedList(new ArrayList<>());
+		final List<String> rejected = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		String expectedChannel;
+		ARIty arity;
+
+		@Override
+		public void dispatchBatch(String key, List<EventIngestion.Ingested> events) {
+			blocked.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				return;
+			}
+			for (EventIngestion.Ingested ev : events)
+				dispatched.add(ev.event);
+		}
+
+		@Override
+		public boolean isCoalescable(String channelId, Class<?> messageClass) {
+			return arity != null && arity.isCoalescable(channelId, messageClass);
+		}
+
+		@Override
+		public boolean isExpectedChannel(String channelId) {
+			return channelId.equals(expectedChannel);
+		}
+
+		@Override
+		public void rejectCall(String channelId, String reason) {
+			rejected.add(channelId);
+		}
+
+		void awaitDispatched(int count) throws InterruptedException {
+			for (int i = 0; i < 200 && dispatched.size() < count; i++)
+				Thread.sleep(10);
+			Thread.sleep(50); // let any extra events through
+		}
+	}
+
+	private TestDispatcher dispatcher = new TestDispatcher();
+	private EventIngestion ingestion;
+
+	@After
+	public void shutdown() {
+		dispatcher.release.countDown();
+		if (ingestion != null)
+			ingestion.shutdown();
+	}
+
+	@Test
+	public void testLowPriorityEventsAreDispatchedOnce() throws InterruptedException {
+		ingestion = new EventIngestion("test", dispatcher, 16, OverloadPolicy.DROP_LOW_PRIORITY);
+		dispatcher.release.countDown();
+		ingestion.offer(event(ChannelVarset.class, "c1"), System.nanoTime());
+		ingestion.offer(event(ChannelTalkingStarted.class, "c1"), System.nanoTime());
+		ingestion.offer(event(ChannelStateChange.class, "c1"), System.nanoTime());
+		dispatcher.awaitDispatched(3);
+		assertEquals(3, dispatcher.dispatched.size());
+		assertEquals(0, ingestion.getDropped());
+	}
+
+	@Test
+	public void testDropLowPriorityWhenFull() throws InterruptedException {
+		ingestion = new EventIngestion("test", dispatcher, 2, OverloadPolicy.DROP_LOW_PRIORITY);
+		blockDrainer();
+		ingestion.offer(event(ChannelVarset.class, "c1"), System.nanoTime());
+		ingestion.offer(event(ChannelVarset.class, "c2"), System.nanoTime());
+		ingestion.offer(event(ChannelVarset.class, "c3"), System.nanoTime()); // buffer is full, returns immediately
+		assertEquals(1, ingestion.getDropped());
+		assertEquals(2, ingestion.getDepth());
+		dispatcher.release.countDown();
+		dispatcher.awaitDispatched(3);
+		assertEquals(3, dispatcher.dispatched.size());
+	}
+
+	@Test
+	public void testBlockWaitsForSpace() throws InterruptedException {
+		ingestion = new EventIngestion("test", dispatcher, 2, OverloadPolicy.BLOCK);
+		blockDrainer();
+		ingestion.offer(event(ChannelVarset.class, "c1"), System.nanoTime());
+		ingestion.offer(event(ChannelVarset.class, "c2"), System.nanoTime());
+		Thread producer = new Thread(() -> {
+			try {
+				ingestion.offer(event(ChannelVarset.class, "c3"), System.nanoTime());
+			} catch (InterruptedException e) {
+			}
+		});
+		producer.start();
+		producer.join(200);
+		assertTrue("Producer should wait for space in the buffer", producer.isAlive());
+		dispatcher.release.countDown();
+		producer.join(2000);
+		dispatcher.awaitDispatched(4);
+		assertEquals(4, dispatcher.dispatched.size());
+		assertEquals(0, ingestion.getDropped());
+	}
+
+	@Test
+	public void testShedCallsAtThreshold() throws InterruptedException {
+		ingestion = new EventIngestion("test", dispatcher, 4, OverloadPolicy.SHED_CALLS);
+		dispatcher.expectedChannel = "expected";
+		blockDrainer();
+		ingestion.offer(event(StasisStart.class, "c1"), System.nanoTime()); // below the threshold of 3
+		ingestion.offer(event(ChannelVarset.class, "c1"), System.nanoTime());
+		ingestion.offer(event(ChannelVarset.class, "c1"), System.nanoTime());
+		ingestion.offer(event(StasisStart.class, "c2"), System.nanoTime());
+		ingestion.offer(event(StasisStart.class, "expected"), System.nanoTime());
+		assertEquals(Collections.singletonList("c2"), dispatcher.rejected);
+		assertEquals(1, ingestion.getShedCalls());
+		dispatcher.release.countDown();
+		dispatcher.awaitDispatched(5);
+		assertEquals(5, dispatcher.dispatched.size());
+	}
+
+	@Test
+	public void testCoalesceUpdatesOfTheSameVariable() throws Exception {
+		dispatcher.arity = arityWithCallState("c1");
+		List<Message> updates = Arrays.asList(event(ChannelVarset.class, "c1"), event(ChannelVarset.class, "c1"));
+		assertEquals(updates.subList(1, 2), dispatchInOneBatch(updates));
+	}
+
+	@Test
+	public void testDontCoalesceWithChannelHandler() throws Exception {
+		dispatcher.arity = arityWithCallState("c1");
+		dispatcher.arity.addEventHandler(ChannelVarset.class, "c1", (e, se) -> {});
+		List<Message> updates = Arrays.asList(event(ChannelVarset.class, "c1"), event(ChannelVarset.class, "c1"));
+		assertEquals(updates, dispatchInOneBatch(updates));
+	}
+
+	@Test
+	public void testDontCoalesceWithGeneralHandler() throws Exception {
+		dispatcher.arity = arityWithCallState("c1");
+		dispatcher.arity.subscribe(ChannelVarset.class, e -> {});
+		List<Message> updates = Arrays.asList(event(ChannelVarset.class, "c1"), event(ChannelVarset.class, "c1"));
+		assertEquals(updates, dispatchInOneBatch(updates));
+	}
+
+	/**
+	 * Create an ARIty instance that is not connected to Asterisk, with a call state - whose variable cache is the
+	 * only (coalescable) handler of variable updates - on the specified channel
+	 */
+	private static ARIty arityWithCallState(String channelId) throws Exception {
+		ARIty arity = new ARIty(null, "test", null, null, false);
+		new CallState(model(Channel.class, Map.of("getId", channelId, "getState", "Up")), arity);
+		return arity;
+	}
+
+	/**
+	 * Ingest events while the drainer is blocked, so they are all drained in a single batch
+	 * @return the events that were dispatched from the batch
+	 */
+	private List<Message> dispatchInOneBatch(List<Message> events) throws InterruptedException {
+		ingestion = new EventIngestion("test", dispatcher, 16, OverloadPolicy.BLOCK);
+		blockDrainer();
+		for (Message event : events)
+			ingestion.offer(event, System.nanoTime());
+		dispatcher.release.countDown();
+		dispatcher.awaitDispatched(events.size() + 1);
+		return dispatcher.dispatched.subList(1, dispatcher.dispatched.size());
+	}
+
+	/**
+	 * Dispatch a first event and wait until the drainer is holding it, so the buffer is empty and nothing is drained
+	 * until the dispatcher is released
+	 */
+	private void blockDrainer() throws InterruptedException {
+		ingestion.offer(event(ChannelStateChange.class, "c0"), System.nanoTime());
+		assertTrue(dispatcher.blocked.await(2, TimeUnit.SECONDS));
+	}
+
+	private static <T extends Message> T event(Class<T> type, String channelId) {
+		Channel channel = model(Channel.class, Map.of("getId", channelId));
+		return model(type, Map.of("getChannel", channel, "getVariable", "var", "getValue", "value"));
+	}
+
+	private static <T> T model(Class<T> type, Map<String, Object> values) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "toString": return type.getSimpleName() + values;
+			case "hashCode": return System.identityHashCode(proxy);
+			case "equals": return proxy == args[0];
+			default: return values.get(method.getName());
+			}
+		}));
+	}
+}
@@ -0,0 +1,126 @@
+package io.cloudonix.arity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.loway.oss.ari4java.generated.models.Channel;
+import ch.loway.oss.ari4java.generated.models.ChannelDtmfReceived;
+import io.cloudonix.arity.helpers.DtmfPatterns;
+
+public class ReceiveDTMFTest {
+
+	private ARIty arity;
+	private CallController controller;
+
+	@Before
+	public void setup() throws Exception {
+		arity = new ARIty(null, "test", null, null, false);
+		controller = new CallController() {
+			@Override
+			public CompletableFuture<Void> run() {
+				return CompletableFuture.completedFuture(null);
+			}
+		};
+		controller.init(new CallState(model(Channel.class, Map.of("getId", "c1", "getState", "Up")), arity));
+	}
+
+	@Test
+	public void testMultipleTerminatingKeys() throws Exception {
+		CompletableFuture<ReceiveDTMF> done = controller.receiveDTMF("#*").run();
+		press("1", "2", "*", "3");
+		ReceiveDTMF dtmf = done.get(2, TimeUnit.SECONDS);
+		assertEquals("12", dtmf.getInput());
+		assertTrue(dtmf.isTermKeyWasPressed());
+		assertFalse(dtmf.isTimedOut());
+	}
+
+	@Test
+	public void testNullTerminatingKeys() throws Exception {
+		CompletableFuture<ReceiveDTMF> done = controller.receiveDTMF(null, 3).run();
+		press("#", "1", "2");
+		ReceiveDTMF dtmf = done.get(2, TimeUnit.SECONDS);
+		assertEquals("#12", dtmf.getInput());
+		assertFalse(dtmf.isTermKeyWasPressed());
+		done = controller.receiveDTMF(2).setTerminatingKey(null).run();
+		press("*", "4");
+		assertEquals("*4", done.get(2, TimeUnit.SECONDS).getInput());
+	}
+
+	@Test
+	public void testMaximumLength() throws Exception {
+		CompletableFuture<ReceiveDTMF> done = controller.receiveDTMF("#", 3).run();
+		press("1", "2", "3", "4");
+		ReceiveDTMF dtmf = done.get(2, TimeUnit.SECONDS);
+		assertEquals("123", dtmf.getInput());
+		assertFalse(dtmf.isTermKeyWasPressed());
+	}
+
+	@Test
+	public void testFirstDigitTimeout() throws Exception {
+		ReceiveDTMF dtmf = controller.receiveDTMF("#").setFirstDigitTimeout(100).run().get(2, TimeUnit.SECONDS);
+		assertTrue(dtmf.isTimedOut());
+		assertEquals("", dtmf.getInput());
+	}
+
+	@Test
+	public void testInterDigitTimeout() throws Exception {
+		CompletableFuture<ReceiveDTMF> done = controller.receiveDTMF("#").setInterDigitTimeout(200).run();
+		Thread.sleep(400); // no first digit timeout, so waits for the first digit
+		assertFalse(done.isDone());
+		press("1", "2");
+		ReceiveDTMF dtmf = done.get(2, TimeUnit.SECONDS);
+		assertTrue(dtmf.isTimedOut());
+		assertEquals("12", dtmf.getInput());
+	}
+
+	@Test
+	public void testExtendableMatchCompletesOnInterDigitTimeout() throws Exception {
+		CompletableFuture<ReceiveDTMF> done = controller.receiveDTMF()
+				.setPattern(DtmfPatterns.digitMap("9011x.|[1-8]xx")).setInterDigitTimeout(200).run();
+		press("9", "0", "1", "1", "5");
+		ReceiveDTMF dtmf = done.get(2, TimeUnit.SECONDS);
+		assertTrue(dtmf.isMatched());
+		assertTrue(dtmf.isTimedOut());
+		assertEquals("90115", dtmf.getInput());
+	}
+
+	@Test
+	public void testCompleteMatch() throws Exception {
+		CompletableFuture<ReceiveDTMF> done = controller.receiveDTMF()
+				.setPattern(DtmfPatterns.digitMap("9011x.|[1-8]xx")).run();
+		press("2", "3", "4");
+		ReceiveDTMF dtmf = done.get(2, TimeUnit.SECONDS);
+		assertTrue(dtmf.isMatched());
+		assertFalse(dtmf.isTimedOut());
+		assertEquals("234", dtmf.getInput());
+	}
+
+	private void press(String... digits) throws InterruptedException {
+		Channel channel = model(Channel.class, Map.of("getId", "c1"));
+		for (String digit : digits) {
+			arity.onSuccess(model(ChannelDtmfReceived.class, Map.of("getChannel", channel, "getDigit", digit,
+					"getType", "ChannelDtmfReceived")));
+			Thread.sleep(20); // handlers are dispatched in parallel, so let each digit be handled before the next
+		}
+	}
+
+	private static <T> T model(Class<T> type, Map<String, Object> values) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "toString": return type.getSimpleName() + values;
+			case "hashCode": return System.identityHashCode(proxy);
+			case "equals": return proxy == args[0];
+			default: return values.get(method.getName());
+			}
+		}));
+	}
+}
@@ -0,0 +1,101 @@
+package io.cloudonix.arity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ch.loway.oss.ari4java.generated.models.Channel;
+
+public class VariableCacheTest {
+
+	@Test
+	public void testLruEvictsLeastRecentlyUsed() {
+		VariableCache cache = VariableCache.lru(2);
+		cache.put("A", "1");
+		cache.put("B", "2");
+		cache.put("C", "3");
+		assertNull(cache.get("A"));
+		assertEquals("2", cache.get("B"));
+		assertEquals("3", cache.get("C"));
+		assertEquals(2, cache.entries().size());
+	}
+
+	@Test
+	public void testLruReadMakesMostRecent() {
+		VariableCache cache = VariableCache.lru(2);
+		cache.put("A", "1");
+		cache.put("B", "2");
+		assertEquals("1", cache.get("A"));
+		cache.put("C", "3");
+		assertEquals("1", cache.get("A"));
+		assertNull(cache.get("B"));
+		assertEquals("3", cache.get("C"));
+	}
+
+	@Test
+	public void testAllowListOnlyStoresAllowed() {
+		VariableCache cache = VariableCache.allowList(Arrays.asList("A"));
+		cache.put("A", "1");
+		cache.put("B", "2");
+		assertEquals("1", cache.get("A"));
+		assertNull(cache.get("B"));
+		assertEquals(1, cache.entries().size());
+	}
+
+	@Test
+	public void testReadOfVariableNotOnAllowListGoesToAri() throws Exception {
+		ARIty arity = new ARIty(null, "test", null, null, false);
+		arity.setVariableCache(() -> VariableCache.allowList(Arrays.asList("A")));
+		Queue<CompletableFuture<String>> requests = new ConcurrentLinkedQueue<>();
+		CallState callState = new CallState(model(Channel.class, Map.of("getId", "c1", "getState", "Up")), arity) {
+			@Override
+			CompletableFuture<String> fetchVariable(String name) {
+				CompletableFuture<String> request = new CompletableFuture<>();
+				requests.add(request);
+				return request;
+			}
+		};
+
+		// concurrent reads share a single request
+		CompletableFuture<String> first = callState.readVariable("B"), second = callState.readVariable("B");
+		assertEquals(1, requests.size());
+		assertFalse(first.isDone());
+		requests.poll().complete("2");
+		assertEquals("2", first.get(1, TimeUnit.SECONDS));
+		assertEquals("2", second.get(1, TimeUnit.SECONDS));
+
+		// but the value is not cached, so the next read is another request
+		CompletableFuture<String> third = callState.readVariable("B");
+		assertEquals(1, requests.size());
+		requests.poll().complete("3");
+		assertEquals("3", third.get(1, TimeUnit.SECONDS));
+
+		// while an allowed variable is only requested once
+		CompletableFuture<String> allowed = callState.readVariable("A");
+		requests.poll().complete("1");
+		assertEquals("1", allowed.get(1, TimeUnit.SECONDS));
+		assertEquals("1", callState.readVariable("A").get(1, TimeUnit.SECONDS));
+		assertEquals(0, requests.size());
+	}
+
+	private static <T> T model(Class<T> type, Map<String, Object> values) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "toString": return type.getSimpleName() + values;
+			case "hashCode": return System.identityHashCode(proxy);
+			case "equals": return proxy == args[0];
+			default: return values.get(method.getName());
+			}
+		}));
+	}
+}
@@ -0,0 +1,76 @@
+package io.cloudonix.arity.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ConcurrencyLimiterTest {
+
+	@Test
+	public void testLimitsConcurrentTasks() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 10);
+		CompletableFuture<String> first = new CompletableFuture<>(), second = new CompletableFuture<>();
+		AtomicInteger started = new AtomicInteger();
+		CompletableFuture<String> r1 = limiter.submit(() -> { started.incrementAndGet(); return first; });
+		limiter.submit(() -> { started.incrementAndGet(); return second; });
+		CompletableFuture<String> r3 = limiter.submit(() -> { started.incrementAndGet(); return CompletableFuture.completedFuture("third"); });
+		assertEquals(2, started.get());
+		assertEquals(2, limiter.getRunning());
+		assertEquals(1, limiter.getQueued());
+		first.complete("first");
+		assertEquals("first", r1.join());
+		assertEquals("third", r3.join());
+		assertEquals(1, limiter.getRunning());
+		assertEquals(0, limiter.getQueued());
+		second.complete("second");
+		assertEquals(0, limiter.getRunning());
+	}
+
+	@Test
+	public void testRejectsWhenQueueIsFull() throws InterruptedException {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1);
+		limiter.submit(() -> new CompletableFuture<>());
+		limiter.submit(() -> new CompletableFuture<>());
+		CompletableFuture<Object> rejected = limiter.submit(() -> new CompletableFuture<>());
+		try {
+			rejected.get();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+			return;
+		}
+		throw new AssertionError("Task was not rejected");
+	}
+
+	@Test
+	public void testFailedTaskReleasesSlot() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1);
+		CompletableFuture<Object> failed = limiter.submit(() -> { throw new IllegalStateException(); });
+		assertTrue(failed.isCompletedExceptionally());
+		assertEquals(0, limiter.getRunning());
+	}
+
+	@Test(timeout = 10000) // a stack overflow while starting queued tasks leaves them waiting forever
+	public void testSynchronousTasksDoNotRecurse() {
+		int tasks = 100_000;
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, tasks);
+		CompletableFuture<Integer> blocker = new CompletableFuture<>();
+		limiter.submit(() -> blocker);
+		CompletableFuture<?>[] results = new CompletableFuture<?>[tasks];
+		for (int i = 0; i < tasks; i++) {
+			int value = i;
+			results[i] = limiter.submit(() -> CompletableFuture.completedFuture(value));
+		}
+		assertFalse(results[0].isDone());
+		blocker.complete(-1);
+		CompletableFuture.allOf(results).join();
+		assertEquals(0, limiter.getRunning());
+		assertEquals(0, limiter.getQueued());
+	}
+}
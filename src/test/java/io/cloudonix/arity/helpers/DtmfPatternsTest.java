@@ -0,0 +1,45 @@
+package io.cloudonix.arity.helpers;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import io.cloudonix.arity.helpers.DtmfPatterns.Result;
+
+public class DtmfPatternsTest {
+
+	@Test
+	public void testFixedLengthRegex() {
+		DtmfPatterns pattern = DtmfPatterns.regex("\\d{4}");
+		assertEquals(Result.PARTIAL, pattern.match("12"));
+		assertEquals(Result.COMPLETE, pattern.match("1234"));
+		assertEquals(Result.NO_MATCH, pattern.match("12345"));
+		assertEquals(Result.NO_MATCH, pattern.match("1*"));
+	}
+
+	@Test
+	public void testAlternativesInRegex() {
+		DtmfPatterns pattern = DtmfPatterns.regex("1|12");
+		assertEquals(Result.MATCH, pattern.match("1"));
+		assertEquals(Result.COMPLETE, pattern.match("12"));
+	}
+
+	@Test
+	public void testDigitMap() {
+		DtmfPatterns pattern = DtmfPatterns.digitMap("([1-8]xx|9011x.|0T|*xx)");
+		assertEquals(Result.PARTIAL, pattern.match("2"));
+		assertEquals(Result.COMPLETE, pattern.match("234"));
+		assertEquals(Result.COMPLETE, pattern.match("0"));
+		assertEquals(Result.NO_MATCH, pattern.match("01"));
+		assertEquals(Result.PARTIAL, pattern.match("901"));
+		assertEquals(Result.MATCH, pattern.match("90113"));
+		assertEquals(Result.MATCH, pattern.match("901134"));
+		assertEquals(Result.COMPLETE, pattern.match("*72"));
+		assertEquals(Result.NO_MATCH, pattern.match("#"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDigitMap() {
+		DtmfPatterns.digitMap("12[3");
+	}
+}
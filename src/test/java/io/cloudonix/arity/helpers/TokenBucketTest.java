@@ -0,0 +1,35 @@
+package io.cloudonix.arity.helpers;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TokenBucketTest {
+
+	@Test
+	public void testStartsFullAndEmpties() {
+		TokenBucket bucket = new TokenBucket(5);
+		for (int i = 0; i < 5; i++)
+			assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+	}
+
+	@Test
+	public void testRefills() throws InterruptedException {
+		TokenBucket bucket = new TokenBucket(20);
+		while (bucket.tryAcquire());
+		Thread.sleep(200); // about 4 tokens
+		assertTrue(bucket.tryAcquire());
+	}
+
+	@Test
+	public void testDoesNotRefillBeyondCapacity() throws InterruptedException {
+		TokenBucket bucket = new TokenBucket(10);
+		Thread.sleep(200);
+		int acquired = 0;
+		while (bucket.tryAcquire())
+			acquired++;
+		assertTrue("acquired " + acquired, acquired >= 10 && acquired <= 11);
+	}
+}